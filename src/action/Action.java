@@ -14,7 +14,7 @@ public abstract class Action {
      * database (aka repository).
      * @return a custom message for every type of action
      */
-    abstract String apply();
+    public abstract String apply();
 
     public final int getActionId() {
         return actionId;
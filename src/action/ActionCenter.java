@@ -31,22 +31,32 @@ public class ActionCenter {
         this();
 
         for (ActionInputData action : commandsData) {
-            Action temp = switch (action.getActionType()) {
-                case Constants.COMMAND -> new Command(action.getActionId(), action.getUsername(),
-                                                    action.getTitle(), action.getSeasonNumber(),
-                                                    action.getType(), action.getGrade());
-                case Constants.QUERY -> new Query(action.getActionId(), action.getObjectType(),
-                                                    action.getNumber(), action.getFilters(),
-                                                    action.getSortType(), action.getCriteria());
-                case Constants.RECOMMENDATION -> new Recommendation(action.getActionId(),
-                                    action.getUsername(), action.getType(), action.getGenre());
-                default -> null;
-            };
-
-            this.actions.add(temp);
+            this.actions.add(createAction(action));
         }
     }
 
+    /**
+     * Builds the Action subclass instance that corresponds
+     * to the type of the given raw action.
+     * @param action action in raw format
+     * @return Command / Query / Recommendation instance;
+     *         null, if the action type is unknown
+     */
+    public static Action createAction(final ActionInputData action) {
+        return switch (action.getActionType()) {
+            case Constants.COMMAND -> new Command(action.getActionId(), action.getUsername(),
+                                                action.getTitle(), action.getSeasonNumber(),
+                                                action.getType(), action.getGrade());
+            case Constants.QUERY -> new Query(action.getActionId(), action.getObjectType(),
+                                                action.getNumber(), action.getFilters(),
+                                                action.getSortType(), action.getCriteria());
+            case Constants.RECOMMENDATION -> new Recommendation(action.getActionId(),
+                                action.getUsername(), action.getType(), action.getGenre(),
+                                action.getTitle());
+            default -> null;
+        };
+    }
+
     /**
      * Redirects the commands to the method apply() from class Action
      * (which will return the output message generated by every action),
@@ -57,11 +67,29 @@ public class ActionCenter {
     public final void applyActions(final Writer fileWriter, final JSONArray arrayResult) {
         actions.forEach(a -> {
             try {
-                JSONObject output = fileWriter.writeFile(a.getActionId(), "", a.apply());
+                JSONObject output = fileWriter.writeFile(a.getActionId(), "", apply(a));
                 arrayResult.add(output);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         });
+        ScoreVectors.getInstance().endRun();
+    }
+
+    /**
+     * Applies an action on the database. The queries and recommendations
+     * between two commands form a read-only run, in which every score vector
+     * (see ScoreVectors) is computed only once; a command ends the run.
+     * @param action action to be applied
+     * @return the output message of the action
+     */
+    public static String apply(final Action action) {
+        ScoreVectors vectors = ScoreVectors.getInstance();
+        if (action instanceof Command) {
+            vectors.endRun();
+        } else {
+            vectors.beginRun();
+        }
+        return action.apply();
     }
 }
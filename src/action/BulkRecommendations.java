@@ -0,0 +1,190 @@
+package action;
+
+import common.Constants;
+import entertainment.Video;
+import org.json.simple.JSONObject;
+import repository.Repository;
+import user.User;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the standard, best_unseen and favorite recommendations of many
+ * users in one pass, with the same messages as Recommendation.apply().
+ * <p>
+ * The three orders the recommendations walk (database order, best rated
+ * first, most favorite first) are materialized once and shared by all the
+ * users, so a user only costs the seen videos skipped at the start of every
+ * order, instead of a scan and a sort of the catalog. The users are split in
+ * blocks: the users of a block are computed in parallel on a fork-join pool,
+ * then the block is written, in the order of the users, before the next one
+ * is started, so the memory does not grow with the number of users.
+ * <p>
+ * The database must not be modified while a batch runs.
+ */
+public final class BulkRecommendations {
+    /**
+     * Number of users written at once
+     */
+    public static final int USERS_PER_BLOCK = 4096;
+
+    /**
+     * Number of users computed by a single fork-join task
+     */
+    private static final int USERS_PER_TASK = 256;
+
+    private final List<Video> catalog;
+    private final List<Video> bestRated;
+    private final List<Video> favorites;
+
+    /**
+     * Takes the shared orders from the current state of the database.
+     */
+    public BulkRecommendations() {
+        Repository repo = Repository.getInstance();
+        catalog = repo.getVideos();
+
+        bestRated = new ArrayList<>(catalog.size());
+        Iterator<Video> iterator = repo.getBestRated().iterator();
+        while (iterator.hasNext()) {
+            bestRated.add(iterator.next());
+        }
+
+        /**
+         * The videos that are in at least one favorites list, from the most
+         * popular one (the ties keep the database order, as in favorite()).
+         */
+        Map<String, Integer> favoriteCounts = ScoreVectors.getInstance().getFavorites();
+        Map<Video, Double> counts = new LinkedHashMap<>();
+        for (Video video : catalog) {
+            if (favoriteCounts.containsKey(video.getTitle())) {
+                counts.put(video, (double) favoriteCounts.get(video.getTitle()));
+            }
+        }
+        favorites = CustomSort.sortVideos(new ArrayList<>(counts.keySet()), counts,
+                Constants.DB_DESC);
+    }
+
+    /**
+     * Writes the recommendations of every user from the database.
+     * @param out destination of the JSON lines
+     * @throws IOException if the output cannot be written
+     */
+    public void run(final Writer out) throws IOException {
+        run(Repository.getInstance().getUsers(), out, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Writes one JSON line for every user: {"user", "standard", "best_unseen",
+     * "favorite"}, the last three being the messages of the recommendations.
+     * @param users users to compute the recommendations for
+     * @param out destination of the lines
+     * @param pool pool the users of a block are split on
+     * @throws IOException if the output cannot be written
+     */
+    public void run(final List<User> users, final Writer out, final ForkJoinPool pool)
+            throws IOException {
+        String[] lines = new String[Math.min(users.size(), USERS_PER_BLOCK)];
+        for (int from = 0; from < users.size(); from += USERS_PER_BLOCK) {
+            int to = Math.min(users.size(), from + USERS_PER_BLOCK);
+            pool.invoke(new BlockTask(users, from, from, to, lines));
+            for (int i = 0; i < to - from; i++) {
+                out.write(lines[i]);
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @param username a user
+     * @return the JSON line with the recommendations of the user
+     */
+    private String line(final String username) {
+        /**
+         * The recommendations read the history of the user with that name
+         * from the repository, which is the first one with the name.
+         */
+        User user = Repository.getInstance().findUser(username);
+        Map<String, String> line = new LinkedHashMap<>();
+        line.put(Constants.USER, username);
+
+        Video standard = firstUnseen(catalog, user);
+        line.put(Constants.STANDARD, (standard == null)
+                ? "StandardRecommendation cannot be applied!"
+                : "StandardRecommendation result: " + standard.getTitle());
+
+        Video best = firstUnseen(bestRated, user);
+        line.put(Constants.BEST_UNSEEN, (best == null)
+                ? "BestRatedUnseenRecommendation cannot be applied!"
+                : "BestRatedUnseenRecommendation result: " + best.getTitle());
+
+        Video favorite = (user != null && user.getSubscriptionType().equals(Constants.PREMIUM))
+                ? firstUnseen(favorites, user) : null;
+        line.put(Constants.FAVORITE, (favorite == null)
+                ? "FavoriteRecommendation cannot be applied!"
+                : "FavoriteRecommendation result: " + favorite.getTitle());
+
+        return JSONObject.toJSONString(line);
+    }
+
+    /**
+     * @return the first video of the order not seen by the user
+     *         (null for an unknown user)
+     */
+    private static Video firstUnseen(final List<Video> videos, final User user) {
+        if (user == null) {
+            return null;
+        }
+        for (Video video : videos) {
+            if (!user.getHistory().containsKey(video.getTitle())) {
+                return video;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the lines of a slice of a block of users.
+     */
+    private final class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<User> users;
+        private final int block;
+        private final int from;
+        private final int to;
+        private final String[] lines;
+
+        private BlockTask(final List<User> users, final int block, final int from,
+                          final int to, final String[] lines) {
+            this.users = users;
+            this.block = block;
+            this.from = from;
+            this.to = to;
+            this.lines = lines;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > USERS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockTask(users, block, from, middle, lines),
+                        new BlockTask(users, block, middle, to, lines));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                lines[i - block] = line(users.get(i).getUsername());
+            }
+        }
+    }
+}
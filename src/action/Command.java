@@ -73,6 +73,7 @@ public final class Command extends Action {
         if (user.getHistory().containsKey(title)) {
             if (!user.getFavoriteMovies().contains(title)) {
                 user.getFavoriteMovies().add(title);
+                repo.registerFavorite(user, title);
                 return "success -> " + title + " was added as favourite";
             }
             return "error -> " + title + " is already in favourite list";
@@ -93,6 +94,7 @@ public final class Command extends Action {
         }
 
         user.getHistory().put(title, user.getHistory().getOrDefault(title, 0) + 1);
+        repo.registerView(user, title, getActionId());
 
         return "success -> " + title + " was viewed with total views of "
                 + user.getHistory().get(title);
@@ -137,6 +139,7 @@ public final class Command extends Action {
             } else {
                 ((Serial) video).getSeasons().get(seasonNumber - 1).getRatings().add(grade);
             }
+            repo.registerRating(user, video, seasonNumber, grade);
 
             return "success -> " + title + " was rated with " + grade + " by " + username;
         }
@@ -1,6 +1,7 @@
 package action;
 
 import actor.Actor;
+import actor.ActorsAwards;
 import common.Constants;
 import entertainment.Video;
 import utils.Utils;
@@ -22,22 +23,8 @@ public final class CustomFilter {
      */
     public static List<Video> filterVideos(final List<Video> videos,
                                            final List<List<String>> filters) {
-        return videos.stream().filter(x -> {
-            boolean status = true;
-
-            if (filters.get(Constants.YEAR_POS) != null
-                    && filters.get(Constants.YEAR_POS).get(0) != null) {
-                int year = Integer.parseInt(filters.get(Constants.YEAR_POS).get(0));
-                status = status && (year == x.getYear());
-            }
-            if (filters.get(Constants.GENRE_POS) != null
-                    && filters.get(Constants.GENRE_POS).get(0) != null) {
-                String genre = filters.get(Constants.GENRE_POS).get(0);
-                status = status && (x.getGenres().contains(genre));
-            }
-
-            return status;
-        }).collect(Collectors.toList());
+        return videos.stream().filter(VideoFilter.compile(filters, null))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -55,17 +42,15 @@ public final class CustomFilter {
          * Eliminate the actors that don't have the requested awards.
          */
         if (filters.get(Constants.AWARDS_POS) != null) {
-            filteredActors = filteredActors.stream().filter(x -> {
-                int awards = filters.get(Constants.AWARDS_POS).stream().map(Utils::stringToAwards)
-                                .map(y -> ((x.getAwards().containsKey(y)) ? 1 : 0))
-                                .reduce(0, Integer::sum);
+            int mask = awardsMask(filters.get(Constants.AWARDS_POS));
 
-                /**
-                 * If the actor has all the needed awards, then the number of the
-                 * awards found should be equal to the number of the requested awards.
-                 */
-                return awards == filters.get(Constants.AWARDS_POS).size();
-            }).collect(Collectors.toList());
+            /**
+             * If the actor has all the needed awards, then every bit
+             * of the requested mask is also set in the actor's mask.
+             */
+            filteredActors = filteredActors.stream()
+                                .filter(x -> (x.getAwardsMask() & mask) == mask)
+                                .collect(Collectors.toList());
         }
 
         /**
@@ -91,4 +76,23 @@ public final class CustomFilter {
 
         return filteredActors;
     }
+
+    /**
+     * Compiles a list of awards into a bitmask (bit i is set for
+     * the award with ordinal i).
+     * @param awards names of the awards
+     * @return mask of the awards; -1 (a mask that no actor can match)
+     *         if one of the names is not a valid award
+     */
+    public static int awardsMask(final List<String> awards) {
+        int mask = 0;
+        for (String name : awards) {
+            ActorsAwards award = Utils.stringToAwards(name);
+            if (award == null) {
+                return -1;
+            }
+            mask |= 1 << award.ordinal();
+        }
+        return mask;
+    }
 }
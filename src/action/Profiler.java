@@ -0,0 +1,289 @@
+package action;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Opt-in profiler for the read-only actions (queries and recommendations).
+ * <p>
+ * While enabled, every action records how long each stage of its execution
+ * took, how many rows entered and left the stage and how many bytes were
+ * allocated by it. The profiles are kept aside from the results (they can be
+ * read with getReports()), so the output messages don't change. The stages
+ * are marked in sequence: mark() attributes to a stage everything that
+ * happened since the previous mark, so the stages of an action add up to its
+ * total time. When disabled, begin(), mark() and end() do nothing.
+ */
+public final class Profiler {
+    /**
+     * Stages of a read-only action
+     */
+    public enum Stage {
+        /**
+         * Gathering the candidate objects (e.g. from an index)
+         */
+        RETRIEVAL,
+        /**
+         * Removing the candidates that don't match the filters / the criteria
+         */
+        FILTER,
+        /**
+         * Computing the values the candidates are sorted by
+         */
+        SCORING,
+        /**
+         * Sorting the candidates and keeping the first N
+         */
+        SORT,
+        /**
+         * Building the output message
+         */
+        FORMAT
+    }
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double BYTES_PER_KB = 1024.0;
+
+    private static Profiler instance = null;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<ActionProfile> reports = new ArrayList<>();
+    private boolean enabled = false;
+    private ActionProfile current;
+    private long lastNanos;
+    private long lastBytes;
+    private int lastRows;
+
+    private Profiler() {
+    }
+
+    /**
+     * @return the profiler (singleton)
+     */
+    public static Profiler getInstance() {
+        if (instance == null) {
+            instance = new Profiler();
+        }
+        return instance;
+    }
+
+    /**
+     * @param enabled true to record the profiles of the following actions
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the profile of an action.
+     * @param actionId id of the action
+     * @param description what the action does (e.g. "query movies ratings")
+     */
+    public void begin(final int actionId, final String description) {
+        if (enabled) {
+            current = new ActionProfile(actionId, description);
+            lastNanos = System.nanoTime();
+            lastBytes = allocatedBytes();
+            lastRows = 0;
+            current.start = lastNanos;
+            current.startBytes = lastBytes;
+        }
+    }
+
+    /**
+     * Must be called when the current action starts to be executed;
+     * an action that is never executed was answered from the result cache.
+     */
+    public void computing() {
+        if (current != null) {
+            current.cached = false;
+        }
+    }
+
+    /**
+     * Ends a stage of the current action.
+     * @param stage the stage that just ended
+     * @param rowsIn number of rows that entered the stage
+     * @param rowsOut number of rows that left the stage
+     */
+    public void mark(final Stage stage, final int rowsIn, final int rowsOut) {
+        if (current == null) {
+            return;
+        }
+
+        long nanos = System.nanoTime();
+        long bytes = allocatedBytes();
+        current.record(stage, nanos - lastNanos, bytes - lastBytes, rowsIn, rowsOut);
+        lastNanos = nanos;
+        lastBytes = bytes;
+        lastRows = rowsOut;
+    }
+
+    /**
+     * Ends the profile of the current action; for an executed action,
+     * the time since the last stage is attributed to formatting.
+     */
+    public void end() {
+        if (current == null) {
+            return;
+        }
+
+        if (!current.cached) {
+            mark(Stage.FORMAT, lastRows, 1);
+        }
+        current.totalNanos = System.nanoTime() - current.start;
+        current.totalBytes = allocatedBytes() - current.startBytes;
+        reports.add(current);
+        current = null;
+    }
+
+    /**
+     * @return the profiles recorded since the last clear(), in execution order
+     */
+    public List<ActionProfile> getReports() {
+        return Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * Removes the recorded profiles.
+     */
+    public void clear() {
+        reports.clear();
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far
+     *         (0 if the JVM can't measure them)
+     */
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * Measurements of a single stage.
+     */
+    public static final class StageProfile {
+        private long nanos;
+        private long bytes;
+        private int rowsIn;
+        private int rowsOut;
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public int getRowsIn() {
+            return rowsIn;
+        }
+
+        public int getRowsOut() {
+            return rowsOut;
+        }
+    }
+
+    /**
+     * Profile of a single action.
+     */
+    public static final class ActionProfile {
+        private final int actionId;
+        private final String description;
+        private final Map<Stage, StageProfile> stages = new EnumMap<>(Stage.class);
+        private long start;
+        private long startBytes;
+        private long totalNanos;
+        private long totalBytes;
+        private boolean cached = true;
+
+        private ActionProfile(final int actionId, final String description) {
+            this.actionId = actionId;
+            this.description = description;
+        }
+
+        /**
+         * A stage can be marked several times (e.g. filtering before and
+         * after sorting): the time and the bytes are added, the rows that
+         * entered the stage are the first ones and the rows that left it
+         * the last ones.
+         */
+        private void record(final Stage stage, final long nanos, final long bytes,
+                            final int rowsIn, final int rowsOut) {
+            StageProfile profile = stages.get(stage);
+            if (profile == null) {
+                profile = new StageProfile();
+                profile.rowsIn = rowsIn;
+                stages.put(stage, profile);
+            }
+            profile.nanos += nanos;
+            profile.bytes += bytes;
+            profile.rowsOut = rowsOut;
+        }
+
+        public int getActionId() {
+            return actionId;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return the measured stages, in the order of the Stage enum
+         */
+        public Map<Stage, StageProfile> getStages() {
+            return Collections.unmodifiableMap(stages);
+        }
+
+        /**
+         * @return true if the result was taken from the result cache
+         */
+        public boolean isCached() {
+            return cached;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * @return one line, e.g. "#7 query movies ratings: RETRIEVAL 0.010 ms
+         *         52->8 1.2 KB, ... total 0.030 ms 3.1 KB"
+         */
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder().append('#').append(actionId).append(' ')
+                    .append(description).append(':');
+            if (isCached()) {
+                line.append(" cached,");
+            }
+            for (Map.Entry<Stage, StageProfile> entry : stages.entrySet()) {
+                StageProfile profile = entry.getValue();
+                line.append(String.format(Locale.ROOT, " %s %.3f ms %d->%d %.1f KB,",
+                        entry.getKey(), profile.nanos / NANOS_PER_MILLI, profile.rowsIn,
+                        profile.rowsOut, profile.bytes / BYTES_PER_KB));
+            }
+            return line.append(String.format(Locale.ROOT, " total %.3f ms %.1f KB",
+                    totalNanos / NANOS_PER_MILLI, totalBytes / BYTES_PER_KB)).toString();
+        }
+    }
+}
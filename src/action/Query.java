@@ -1,19 +1,52 @@
 package action;
 
 import actor.Actor;
+import actor.ActorsAwards;
 import common.Constants;
+import entertainment.Genre;
+import entertainment.Movie;
+import entertainment.Serial;
 import entertainment.Video;
+import repository.AggregateCube;
+import repository.CatalogIndexes;
+import repository.RatingDistributions;
+import repository.RatingHistogram;
 import repository.Repository;
+import repository.TextIndex;
+import repository.UserActivityIndex;
+import repository.VersionCounter;
+import repository.VideoIndex;
+import repository.ViewSketches;
 import user.User;
 import utils.Utils;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public final class Query extends Action {
+    private static final double MEDIAN = 0.5;
+    private static final double P90 = 0.9;
+    private static final String GROUP_FORMAT =
+            "{videos=%d, views=%d, ratings=%d, average=%.2f, favorites=%d}";
+    /**
+     * The variance of a single rating says nothing about polarization
+     */
+    private static final int MIN_POLARIZING_RATINGS = 2;
+
     private final String objectType;
     private int number;
     private final List<List<String>> filters;
@@ -31,26 +64,60 @@ public final class Query extends Action {
     }
 
     /**
-     * Make a query on the database.
+     * Make a query on the database (the result is reused from
+     * query cache if the data it depends on didn't change).
      * @return query result
      */
     @Override
     public String apply() {
+        Profiler profiler = Profiler.getInstance();
+        profiler.begin(getActionId(), "query " + objectType + " " + criteria);
+        String result = ResultCache.getQueryCache().computeIfAbsent(cacheKey(), dependencies(),
+                                                                    this::execute);
+        profiler.end();
+        return result;
+    }
+
+    /**
+     * Runs the query on the current state of the database.
+     * @return query result
+     */
+    private String execute() {
+        Profiler.getInstance().computing();
+        List<String> results = results();
+        return (results != null) ? "Query result: " + results : null;
+    }
+
+    /**
+     * @return names of the first N results of the query, in query order;
+     *         null, if the query is not supported
+     */
+    private List<String> results() {
+        if (criteria.equals(Constants.AUTOCOMPLETE) || criteria.equals(Constants.SUBSTRING)) {
+            return searchNames();
+        }
         switch (objectType) {
             case Constants.ACTORS -> {
                 return switch (criteria) {
-                    case Constants.AVERAGE -> averageActor();
-                    case Constants.AWARDS -> awardsActor();
-                    case Constants.FILTER_DESCRIPTIONS -> keywordsActor();
+                    case Constants.AVERAGE, Constants.AWARDS, Constants.FILTER_DESCRIPTIONS ->
+                            firstActors(actorScores());
+                    case Constants.CO_STARS -> coStarsActor();
+                    case Constants.DEGREES_OF_SEPARATION -> degreesActor();
                     default -> null;
                 };
             }
             case Constants.MOVIES, Constants.SHOWS -> {
                 return switch (criteria) {
                     case Constants.RATINGS -> ratingsVideos();
-                    case Constants.FAVORITE -> favoritesVideos();
                     case Constants.LONGEST -> longestVideos();
                     case Constants.MOST_VIEWED -> mostViewedVideos();
+                    case Constants.TRENDING -> trendingVideos();
+                    case Constants.FAVORITE, Constants.APPROX_MOST_VIEWED,
+                         Constants.DISTINCT_VIEWERS, Constants.MEDIAN_RATING,
+                         Constants.P90_RATING, Constants.MOST_POLARIZING ->
+                            firstVideos(videoScores());
+                    case Constants.GENRE_STATS, Constants.YEAR_STATS, Constants.GENRE_YEAR_STATS ->
+                            groupedVideos();
                     default -> null;
                 };
             }
@@ -67,28 +134,48 @@ public final class Query extends Action {
     }
 
     /**
-     * Finds the first N actors sorted in the specified order
-     * after their average rating.
-     * @return output message as String
+     * Sorts scored actors in the specified order and keeps the first N.
+     * @param scores valid actors mapped to their score, in the order that
+     *               is kept for an unknown sortType
+     * @return names of the results, in query order
      */
-    private String averageActor() {
-        Repository repo = Repository.getInstance();
-        List<Actor> actors = retrieveTargetObjects(objectType).stream().map(x -> (Actor) x)
-                                .collect(Collectors.toList());
+    private List<String> firstActors(final Map<Actor, Double> scores) {
+        List<Actor> sorted = CustomSort.sortActors(new ArrayList<>(scores.keySet()), scores,
+                                                   sortType);
+        Profiler.getInstance().mark(Profiler.Stage.SORT, sorted.size(),
+                Math.min(sorted.size(), number));
 
-        Map<Actor, Double> averageRating = actors.stream().collect(Collectors.toMap(x -> x, x -> {
-            /**
-             * Get only the videos that exist in the database,
-             * with a positive rating and then compute the sum of their ratings.
-             */
-            List<Double> validRatings = x.getFilmography().stream().map(y ->
-                                        (repo.findVideo(y) != null) ? repo.findVideo(y)
-                                        .getAverageRating() : 0.0).filter(y -> Double
-                                        .compare(y, 0.0) != 0).collect(Collectors.toList());
+        return sorted.subList(0, Math.min(sorted.size(), number))
+                                    .stream().map(Actor::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the valid actors mapped to the score they are sorted by, for
+     *         the actor criteria sorted by a score; null, otherwise
+     */
+    private Map<Actor, Double> actorScores() {
+        return switch (criteria) {
+            case Constants.AVERAGE -> averageScores();
+            case Constants.AWARDS -> awardScores();
+            case Constants.FILTER_DESCRIPTIONS -> keywordScores();
+            default -> null;
+        };
+    }
 
-            return (validRatings.size() != 0) ? validRatings.stream().reduce(0.0, Double::sum)
-                                                / validRatings.size() : 0.0;
-        }));
+    /**
+     * Scores the actors by their average rating.
+     * @return the actors that have an average rating greater than zero,
+     *         mapped to their average rating
+     */
+    private Map<Actor, Double> averageScores() {
+        Profiler profiler = Profiler.getInstance();
+        /**
+         * The average rating of every actor (computed over the rated videos
+         * of the filmography that exist in the database) is shared by all
+         * the queries of a run.
+         */
+        Map<Actor, Double> averageRating = ScoreVectors.getInstance().getActorAverages();
+        profiler.mark(Profiler.Stage.SCORING, averageRating.size(), averageRating.size());
 
         /**
          * Remove the key-value pairs where actors that have a rating equal to zero.
@@ -96,180 +183,866 @@ public final class Query extends Action {
         Map<Actor, Double> validRatings = averageRating.keySet().stream()
                                         .filter(x -> Double.compare(averageRating.get(x), 0.0) > 0)
                                         .collect(Collectors.toMap(x -> x, averageRating::get));
-        List<Actor> sorted = CustomSort.sortActors(new ArrayList<>(validRatings.keySet()),
-                                                    validRatings, sortType);
+        profiler.mark(Profiler.Stage.FILTER, averageRating.size(), validRatings.size());
 
-        return "Query result: " + sorted.subList(0, Math.min(sorted.size(), number))
-                                    .stream().map(Actor::getName).collect(Collectors.toList());
+        return validRatings;
     }
 
     /**
-     * Finds the first N actors that won every requested award,
-     * sorted in the specified order after their total number of awards.
-     * @return output message as String
+     * Scores the actors by their total number of awards.
+     * @return the actors that won every requested award, mapped to their
+     *         total number of awards (in the order of the awards list)
      */
-    private String awardsActor() {
-        List<Actor> actors = retrieveTargetObjects(objectType).stream().map(x -> (Actor) x)
-                                .collect(Collectors.toList());
+    private Map<Actor, Double> awardScores() {
+        Repository repo = Repository.getInstance();
+        Profiler profiler = Profiler.getInstance();
+        List<Actor> actors = repo.getActors();
+
+        /**
+         * An actor must have every requested award, so only the actors from
+         * the shortest posting list of the requested awards can be valid.
+         */
+        if (filters.get(Constants.AWARDS_POS) != null) {
+            for (String award : filters.get(Constants.AWARDS_POS)) {
+                ActorsAwards target = Utils.stringToAwards(award);
+                List<Actor> posting = (target != null) ? repo.getActorsWithAward(target)
+                                                       : List.of();
+                if (posting.size() < actors.size()) {
+                    actors = posting;
+                }
+            }
+        }
         /**
          * Remove the actors that don't have the awards specified by filters.
          */
+        profiler.mark(Profiler.Stage.RETRIEVAL, repo.getActors().size(), actors.size());
         List<Actor> validActors = CustomFilter.filterActors(actors, filters);
+        profiler.mark(Profiler.Stage.FILTER, actors.size(), validActors.size());
 
         /**
          * As second parameter of method sortActors, a map from actors to the
          * total number of the awards won is used.
          */
-        validActors = CustomSort.sortActors(validActors, validActors.stream()
-                        .collect(Collectors.toMap(x -> x, x -> (double) x.getAwards().keySet()
-                        .stream().map(y -> x.getAwards().get(y)).reduce(0, (a, b) -> a + b))),
-                        sortType);
+        Map<Actor, Double> totalAwards = validActors.stream().collect(Collectors.toMap(x -> x,
+                        x -> (double) x.getTotalAwards(), (x, y) -> x, LinkedHashMap::new));
+        profiler.mark(Profiler.Stage.SCORING, validActors.size(), totalAwards.size());
 
-
-        return "Query result: " + validActors.subList(0, Math.min(validActors.size(), number))
-                                .stream().map(Actor::getName).collect(Collectors.toList());
+        return totalAwards;
     }
 
     /**
-     * Finds the first N actors which has a description that contains the given words,
-     * as they appear in the Repository.
-     * @return output message as String
+     * Finds the actors which has a description that contains the given words.
+     * Sorting the actors alphabetically by their name is simulated with the classic
+     * sort by a map of properties as the first criteria, and alphabetically as second
+     * criteria (CustomSort.sortActors(), with a sortType == Constants.ASC/DESC), by
+     * mapping every actor to the same value, so the second sorting criteria becomes
+     * the only criteria.
+     * @return the actors whose description contains the given words, mapped
+     *         to the same value (in database order)
      */
-    private String keywordsActor() {
+    private Map<Actor, Double> keywordScores() {
+        Profiler profiler = Profiler.getInstance();
         List<Actor> actors = retrieveTargetObjects(objectType).stream().map(x -> (Actor) x)
                                 .collect(Collectors.toList());
+        profiler.mark(Profiler.Stage.RETRIEVAL, actors.size(), actors.size());
         /**
          * Remove the actors whose description doesn't contain the given keywords.
          */
         List<Actor> validActors = CustomFilter.filterActors(actors, filters);
+        profiler.mark(Profiler.Stage.FILTER, actors.size(), validActors.size());
 
-        /**
-         * Sorting the actors alphabetically by their name can be simulated with the classic sort
-         * by a hashmap of properties as the first criteria, and alphabetically as second criteria
-         * (CustomSort.sortActors(), with a sortType == Constants.ASC/DESC, which is provided by
-         * the current instance with sortType), by using a hashmap that has the same keys for every
-         * actor, so the second sorting criteria will become the only criteria, since all keys
-         * has the same value.
-         */
-        validActors = CustomSort.sortActors(validActors, validActors.stream()
-                                        .collect(Collectors.toMap(x -> x, x -> 0.0)), sortType);
+        return validActors.stream().collect(Collectors.toMap(x -> x, x -> 0.0, (x, y) -> x,
+                LinkedHashMap::new));
+    }
 
-        return "Query result: " + validActors.subList(0, Math.min(validActors.size(), number))
-                                    .stream().map(Actor::getName).collect(Collectors.toList());
+    /**
+     * Finds the first N co-stars of the actor named by the words filter,
+     * sorted in the specified order after the number of titles they share
+     * with the actor (and then by name).
+     * @return names of the results, in query order
+     */
+    private List<String> coStarsActor() {
+        List<String> names = actorNames();
+        if (names.isEmpty() || !(sortType.equals(Constants.ASC)
+                || sortType.equals(Constants.DESC))) {
+            return List.of();
+        }
+
+        return Repository.getInstance().getCoStars().coStars(names.get(0),
+                number, sortType.equals(Constants.ASC));
+    }
+
+    /**
+     * Finds a shortest chain of co-stars between the two actors named by the
+     * words filter (the degrees of separation are the links of the chain).
+     * @return names of the results, in query order
+     */
+    private List<String> degreesActor() {
+        List<String> names = actorNames();
+        if (names.size() < 2) {
+            return List.of();
+        }
+
+        return Repository.getInstance().getCoStars()
+                .shortestPath(names.get(0), names.get(1));
+    }
+
+    /**
+     * Finds the first N titles (for movies and shows) or actor names that
+     * start with (autocomplete) or contain (substring) the words from the
+     * words filter, ignoring the case; the most viewed titles and the actors
+     * with the most awards come first, the ties being sorted by name.
+     * @return names of the results, in query order
+     */
+    private List<String> searchNames() {
+        TextIndex.Kind kind = switch (objectType) {
+            case Constants.MOVIES -> TextIndex.Kind.MOVIE;
+            case Constants.SHOWS -> TextIndex.Kind.SHOW;
+            case Constants.ACTORS -> TextIndex.Kind.ACTOR;
+            default -> null;
+        };
+        String text = searchText();
+        if (kind == null || text.isEmpty()) {
+            return List.of();
+        }
+
+        return Repository.getInstance().getNames().search(kind, text,
+                criteria.equals(Constants.AUTOCOMPLETE), number);
+    }
+
+    /**
+     * @return the words from the words filter, separated by spaces
+     */
+    private String searchText() {
+        return String.join(" ", actorNames());
+    }
+
+    /**
+     * The co-star queries take the names of the actors from the words filter.
+     * @return names of the actors, as given
+     */
+    private List<String> actorNames() {
+        List<String> names = (filters != null && filters.size() > Constants.WORDS_POS)
+                ? filters.get(Constants.WORDS_POS) : null;
+        return (names != null) ? names : List.of();
     }
 
     /**
      * Gets the first N videos sorted by their average rating.
-     * @return output message as String
+     * @return names of the results, in query order
      */
-    private String ratingsVideos() {
-        List<Video> videos = retrieveTargetObjects(objectType).stream().map(x -> (Video) x)
-                                .collect(Collectors.toList());
+    private List<String> ratingsVideos() {
+        List<Video> validVideos = scanIndex(sortedIndex(), validKey());
 
-        /**
-         * Only the videos that have an average rating greater than zero are valid.
-         */
-        List<Video> validVideos = videos.stream()
-                                    .filter(x -> Double.compare(x.getAverageRating(), 0.0) != 0)
+        return validVideos.stream().map(Video::getTitle)
                                     .collect(Collectors.toList());
-        /**
-         * Filter the videos by the given restrictions provided in filters.
-         */
-        validVideos = CustomFilter.filterVideos(validVideos, filters);
-        /**
-         * Sort the videos by their average rating.
-         */
-        validVideos = CustomSort.sortVideos(validVideos, validVideos.stream()
-                        .collect(Collectors.toMap(x -> x, Video::getAverageRating)), sortType);
+    }
+
+    /**
+     * @return the valid videos mapped to the score they are sorted by, for
+     *         the video criteria that have no sorted index; null, otherwise
+     */
+    private Map<Video, Double> videoScores() {
+        return switch (criteria) {
+            case Constants.FAVORITE -> favoriteScores();
+            case Constants.APPROX_MOST_VIEWED -> approxViewScores();
+            case Constants.DISTINCT_VIEWERS -> distinctViewerScores();
+            case Constants.MEDIAN_RATING -> distributionScores(x -> x.quantile(MEDIAN), 1);
+            case Constants.P90_RATING -> distributionScores(x -> x.quantile(P90), 1);
+            case Constants.MOST_POLARIZING -> distributionScores(RatingHistogram::variance,
+                    MIN_POLARIZING_RATINGS);
+            default -> null;
+        };
+    }
 
-        return "Query result: " + validVideos.subList(0, Math.min(validVideos.size(), number))
+    /**
+     * Sorts scored videos in the specified order and keeps the first N.
+     * @param scores valid videos mapped to their score, in the order that
+     *               is kept for an unknown sortType
+     * @return names of the results, in query order
+     */
+    private List<String> firstVideos(final Map<Video, Double> scores) {
+        List<Video> validVideos = CustomSort.sortVideos(new ArrayList<>(scores.keySet()), scores,
+                                                        sortType);
+        Profiler.getInstance().mark(Profiler.Stage.SORT, validVideos.size(),
+                Math.min(validVideos.size(), number));
+
+        return validVideos.subList(0, Math.min(validVideos.size(), number))
                                     .stream().map(Video::getTitle).collect(Collectors.toList());
     }
 
     /**
-     * Searches the first N videos sorted by their popularity in favorites lists.
-     * @return output message as String
+     * Scores the videos by their popularity in favorites lists.
+     * @return the valid videos mapped to their number of favorites lists
+     *         apparitions, in database order
      */
-    private String favoritesVideos() {
-        List<Video> videos = retrieveTargetObjects(objectType).stream()
-                                .map(x -> (Video) x).collect(Collectors.toList());
+    private Map<Video, Double> favoriteScores() {
+        /**
+         * There is no index by favorites, so the plan only chooses
+         * the smallest list of candidates (all, one year or one genre).
+         */
+        Profiler profiler = Profiler.getInstance();
+        QueryPlan plan = plan();
+        List<Video> candidates = plan.getCandidates();
+        profiler.mark(Profiler.Stage.RETRIEVAL, videoIndexes().size(), candidates.size());
         /**
          * Get the videos that complies to the specified filters, and only the
-         * ones that appear in at least one user's favorites list; sort the
-         * new list of videos by the number of favorites lists apparitions.
+         * ones that appear in at least one user's favorites list.
          */
-        List<Video> validVideos = CustomFilter.filterVideos(videos, filters);
-        validVideos = validVideos.stream()
-                        .filter(x -> (Utils.favoriteApparitions(x.getTitle()) != 0))
+        Map<String, Integer> favoriteCounts = ScoreVectors.getInstance().getFavorites();
+        List<Video> validVideos = candidates.stream()
+                        .filter(plan.getFilter())
+                        .filter(x -> favoriteCounts.containsKey(x.getTitle()))
                         .collect(Collectors.toList());
-        validVideos = CustomSort.sortVideos(validVideos, validVideos.stream().collect(Collectors
-                    .toMap(x -> x, x -> (double) Utils.favoriteApparitions(x.getTitle()))),
-                    sortType);
+        profiler.mark(Profiler.Stage.FILTER, candidates.size(), validVideos.size());
+        Map<Video, Double> favorites = validVideos.stream().collect(Collectors
+                    .toMap(x -> x, x -> (double) favoriteCounts.getOrDefault(x.getTitle(), 0),
+                            (x, y) -> x, LinkedHashMap::new));
+        profiler.mark(Profiler.Stage.SCORING, validVideos.size(), favorites.size());
 
-        return "Query result: " + validVideos.subList(0, Math.min(validVideos.size(), number))
-                                    .stream().map(Video::getTitle).collect(Collectors.toList());
+        return favorites;
     }
 
     /**
      * Finds the first N videos sorted by their length.
-     * @return output message as String
+     * @return names of the results, in query order
      */
-    private String longestVideos() {
-        List<Video> videos = retrieveTargetObjects(objectType).stream()
-                                .map(x -> (Video) x).collect(Collectors.toList());
+    private List<String> longestVideos() {
+        List<Video> validVideos = scanIndex(sortedIndex(), validKey());
 
-        List<Video> validVideos = CustomFilter.filterVideos(videos, filters);
-        /**
-         * As the second parameter for sortVideos(), a map is created by
-         * mapping the validVideos to their total length.
-         */
-        validVideos = CustomSort.sortVideos(validVideos, validVideos.stream().collect(Collectors
-                     .toMap(x -> x, x -> (double) x.getDuration())), sortType);
-
-        return "Query result: " + validVideos.subList(0, Math.min(validVideos.size(), number))
-                .stream().map(Video::getTitle).collect(Collectors.toList());
+        return validVideos.stream().map(Video::getTitle)
+                                    .collect(Collectors.toList());
     }
 
     /**
      * Finds the first N videos sorted by the number of views.
-     * @return output message as String
+     * @return names of the results, in query order
+     */
+    private List<String> mostViewedVideos() {
+        List<Video> validVideos = scanIndex(sortedIndex(), validKey());
+
+        return validVideos.stream().map(Video::getTitle)
+                                    .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the first N videos sorted by their trending score (the views
+     * decayed with the number of actions passed since they happened).
+     * @return names of the results, in query order
+     */
+    private List<String> trendingVideos() {
+        List<Video> validVideos = scanIndex(sortedIndex(), validKey());
+
+        return validVideos.stream().map(Video::getTitle)
+                                    .collect(Collectors.toList());
+    }
+
+    /**
+     * Scores the videos by their number of views, estimated by the Count-Min
+     * sketch; only the heavy hitters kept by the sketch are candidates, so
+     * the videos viewed less than them are never returned.
+     * @return the valid videos mapped to their estimated number of views,
+     *         in the order of the heavy hitters
      */
-    private String mostViewedVideos() {
-        List<Video> videos = retrieveTargetObjects(objectType).stream()
-                                .map(x -> (Video) x).collect(Collectors.toList());
+    private Map<Video, Double> approxViewScores() {
+        Profiler profiler = Profiler.getInstance();
+        Repository repo = Repository.getInstance();
+        ViewSketches sketches = repo.getSketches();
+        List<String> hitters = sketches.getHeavyHitters();
+        VideoFilter filter = VideoFilter.compile(filters, videoIndexes());
+        Class<? extends Video> type = objectType.equals(Constants.MOVIES) ? Movie.class
+                                                                          : Serial.class;
+
+        List<Video> validVideos = hitters.stream().map(repo::findVideo)
+                .filter(x -> type.isInstance(x) && filter.test(x))
+                .collect(Collectors.toList());
+        profiler.mark(Profiler.Stage.FILTER, hitters.size(), validVideos.size());
+
+        return validVideos.stream().collect(Collectors.toMap(x -> x,
+                x -> (double) sketches.estimateViews(x.getTitle()), (x, y) -> x,
+                LinkedHashMap::new));
+    }
+
+    /**
+     * Scores the videos by their number of distinct viewers, estimated by
+     * the HyperLogLog counters (the videos that were never viewed are not
+     * valid).
+     * @return the valid videos mapped to their estimated number of distinct
+     *         viewers, in database order
+     */
+    private Map<Video, Double> distinctViewerScores() {
+        Profiler profiler = Profiler.getInstance();
+        QueryPlan plan = plan();
+        List<Video> candidates = plan.getCandidates();
+        profiler.mark(Profiler.Stage.RETRIEVAL, videoIndexes().size(), candidates.size());
+
+        ViewSketches sketches = Repository.getInstance().getSketches();
+        Map<Video, Double> estimates = new LinkedHashMap<>();
+        for (Video video : candidates) {
+            if (plan.getFilter().test(video)) {
+                long viewers = sketches.estimateViewers(video.getTitle());
+                if (viewers > 0) {
+                    estimates.put(video, (double) viewers);
+                }
+            }
+        }
+        profiler.mark(Profiler.Stage.SCORING, candidates.size(), estimates.size());
+
+        return estimates;
+    }
+
+    /**
+     * Scores the videos by a statistic of their rating histogram (for a
+     * serial, the histogram of all its seasons); the videos with too few
+     * ratings are not valid.
+     * @param statistic statistic computed from the histogram
+     * @param minRatings number of ratings needed by a valid video
+     * @return the valid videos mapped to their statistic, in database order
+     */
+    private Map<Video, Double> distributionScores(
+            final ToDoubleFunction<RatingHistogram> statistic, final int minRatings) {
+        Profiler profiler = Profiler.getInstance();
+        QueryPlan plan = plan();
+        List<Video> candidates = plan.getCandidates();
+        profiler.mark(Profiler.Stage.RETRIEVAL, videoIndexes().size(), candidates.size());
+
+        RatingDistributions distributions = Repository.getInstance().getDistributions();
+        Map<Video, Double> statistics = new LinkedHashMap<>();
+        for (Video video : candidates) {
+            RatingHistogram histogram = distributions.getHistogram(video);
+            if (plan.getFilter().test(video) && histogram.getCount() >= minRatings) {
+                statistics.put(video, statistic.applyAsDouble(histogram));
+            }
+        }
+        profiler.mark(Profiler.Stage.SCORING, candidates.size(), statistics.size());
+
+        return statistics;
+    }
+
+    /**
+     * Groups the videos by genre, by year or by both and returns the first N
+     * groups (in ascending order of genre / year, reversed for "desc"), with
+     * the number of videos, views, ratings, the average grade and the number
+     * of favorites of every group. The year and genre filters restrict the
+     * groups; the dimension that is not grouped by is rolled up. The numbers
+     * are read from the aggregate cube, in O(cells).
+     * @return names of the results, in query order
+     */
+    private List<String> groupedVideos() {
+        AggregateCube cube = Repository.getInstance().getCube();
+        VideoFilter filter = VideoFilter.compile(filters, null);
+        boolean movies = objectType.equals(Constants.MOVIES);
+        boolean byGenre = !criteria.equals(Constants.YEAR_STATS);
+        boolean byYear = !criteria.equals(Constants.GENRE_STATS);
+
+        Genre genreFilter = null;
+        if (filter.getGenre() != null) {
+            genreFilter = Utils.stringToGenre(filter.getGenre());
+            if (genreFilter == null) {
+                return List.of();
+            }
+        }
+        Integer yearFilter = filter.hasYear() ? filter.getYear() : null;
+
+        List<Genre> genres = (genreFilter != null) ? List.of(genreFilter)
+                : byGenre ? List.of(Genre.values()) : Collections.singletonList(null);
+        List<Integer> years = (yearFilter != null) ? List.of(yearFilter)
+                : byYear ? new ArrayList<>(cube.getYears()) : Collections.singletonList(null);
+
+        List<String> groups = new ArrayList<>();
+        for (Genre genre : genres) {
+            for (Integer year : years) {
+                AggregateCube.Cell cell = cube.get(movies, genre, year);
+                if (cell.getVideos() > 0) {
+                    groups.add(groupName(byGenre ? genre : null, byYear ? year : null) + ": "
+                            + String.format(Locale.ROOT, GROUP_FORMAT, cell.getVideos(),
+                            cell.getViews(), cell.getRatings(), cell.getAverageGrade(),
+                            cell.getFavorites()));
+                }
+            }
+        }
+        Profiler.getInstance().mark(Profiler.Stage.RETRIEVAL, genres.size() * years.size(),
+                groups.size());
+        if (sortType.equals(Constants.DESC)) {
+            Collections.reverse(groups);
+        }
+
+        return groups.subList(0, Math.min(groups.size(), number));
+    }
+
+    private static String groupName(final Genre genre, final Integer year) {
+        if (genre != null && year != null) {
+            return genre + " " + year;
+        }
+        return (genre != null) ? genre.toString() : String.valueOf(year);
+    }
+
+    /**
+     * @return the index sorted by the criteria of the query;
+     *         null, if the criteria has no index
+     */
+    private VideoIndex sortedIndex() {
+        CatalogIndexes indexes = videoIndexes();
+        return switch (criteria) {
+            case Constants.RATINGS -> indexes.getRatings();
+            case Constants.LONGEST -> indexes.getDurations();
+            case Constants.MOST_VIEWED -> indexes.getViews();
+            case Constants.TRENDING -> indexes.getTrending();
+            default -> null;
+        };
+    }
+
+    /**
+     * @return condition required by the criteria for the key of a valid video
+     */
+    private DoublePredicate validKey() {
+        return switch (criteria) {
+            /**
+             * Only the videos that have an average rating greater than zero are valid.
+             */
+            case Constants.RATINGS -> x -> Double.compare(x, 0.0) != 0;
+            /**
+             * Only the videos viewed at least once are valid (the trending
+             * key is a log-score, negative infinity for the others).
+             */
+            case Constants.MOST_VIEWED -> x -> x > 0;
+            case Constants.TRENDING -> x -> x > Double.NEGATIVE_INFINITY;
+            default -> x -> true;
+        };
+    }
+
+    /**
+     * @return the sorted indexes for the type of videos requested
+     */
+    private CatalogIndexes videoIndexes() {
+        Repository repo = Repository.getInstance();
+        return objectType.equals(Constants.MOVIES) ? repo.getMovieIndexes()
+                                                   : repo.getSerialIndexes();
+    }
+
+    /**
+     * Finds the first N videos that are valid and pass the filters, in the
+     * order of an index. Depending on the plan chosen by QueryPlanner, the
+     * index is walked in the requested order (and only its beginning is
+     * visited when the first videos match), or the videos of the filtered
+     * year / genre are filtered and sorted like the index.
+     * @param index index sorted by the criteria of the query
+     * @param valid condition required by the criteria for the value of the key
+     * @return the first N videos, sorted
+     */
+    private List<Video> scanIndex(final VideoIndex index, final DoublePredicate valid) {
+        Profiler profiler = Profiler.getInstance();
+        QueryPlan plan = plan();
+        VideoFilter filter = plan.getFilter();
+
+        if (plan.getAccess() != QueryPlan.Access.INDEX_SCAN) {
+            List<Video> candidates = plan.getCandidates();
+            profiler.mark(Profiler.Stage.RETRIEVAL, index.size(), candidates.size());
+            List<Video> result = new ArrayList<>();
+            for (Video video : candidates) {
+                if (filter.test(video) && valid.test(index.getKey(video))) {
+                    result.add(video);
+                }
+            }
+            profiler.mark(Profiler.Stage.FILTER, candidates.size(), result.size());
+            /**
+             * The candidates are in database order, which is
+             * also the order kept for an unknown sortType.
+             */
+            if (sortType.equals(Constants.ASC) || sortType.equals(Constants.DESC)) {
+                result.sort(index.comparator());
+                if (sortType.equals(Constants.DESC)) {
+                    Collections.reverse(result);
+                }
+            }
+            profiler.mark(Profiler.Stage.SORT, result.size(), Math.min(result.size(), number));
+            return result.subList(0, Math.min(result.size(), number));
+        }
 
-        List<Video> validVideos = CustomFilter.filterVideos(videos, filters);
         /**
-         * Only the videos viewed at least once are valid.
+         * The index is already sorted, so retrieving the videos in order,
+         * filtering them and keeping the first N is a single stage.
          */
-        validVideos = validVideos.stream().filter(x -> (Utils.viewsOfAVideo(x.getTitle()) > 0))
-                        .collect(Collectors.toList());
-        validVideos = CustomSort.sortVideos(validVideos, validVideos.stream()
-                        .collect(Collectors.toMap(x -> x,
-                                x -> (double) Utils.viewsOfAVideo(x.getTitle()))), sortType);
+        Iterator<Video> iterator = sortType.equals(Constants.ASC) ? index.iterator()
+                                                                  : index.descendingIterator();
+        List<Video> result = new ArrayList<>();
+        int visited = 0;
+        while (result.size() < number && iterator.hasNext()) {
+            Video video = iterator.next();
+            visited++;
+            if (valid.test(index.getKey(video)) && filter.test(video)) {
+                result.add(video);
+            }
+        }
+        profiler.mark(Profiler.Stage.FILTER, visited, result.size());
 
-        return "Query result: " + validVideos.subList(0, Math.min(validVideos.size(), number))
-                                    .stream().map(Video::getTitle).collect(Collectors.toList());
+        return result;
+    }
+
+    /**
+     * Plans a video query.
+     * @return the cheapest access path for the criteria and the filters
+     */
+    private QueryPlan plan() {
+        Repository repo = Repository.getInstance();
+        CatalogIndexes indexes = videoIndexes();
+        List<Video> videos = objectType.equals(Constants.MOVIES)
+                ? Collections.unmodifiableList(repo.getMovies())
+                : Collections.unmodifiableList(repo.getSerials());
+        String index = switch (criteria) {
+            case Constants.RATINGS, Constants.LONGEST, Constants.MOST_VIEWED,
+                 Constants.TRENDING -> criteria;
+            default -> null;
+        };
+
+        return QueryPlanner.plan(indexes, index, videos, VideoFilter.compile(filters, indexes),
+                number, sortType);
+    }
+
+    /**
+     * Describes how the query would be executed on the current database,
+     * without executing it.
+     * @return one line with the access path and its estimated cost
+     */
+    public String explain() {
+        if (criteria.equals(Constants.AUTOCOMPLETE) || criteria.equals(Constants.SUBSTRING)) {
+            return criteria + ": TRIGRAM_SEARCH names, rarest trigram or score order";
+        }
+        if (criteria.equals(Constants.GENRE_STATS) || criteria.equals(Constants.YEAR_STATS)
+                || criteria.equals(Constants.GENRE_YEAR_STATS)) {
+            return criteria + ": CUBE genre x year cells";
+        }
+        if (criteria.equals(Constants.APPROX_MOST_VIEWED)) {
+            return criteria + ": SKETCH count-min heavy hitters";
+        }
+        return switch (objectType) {
+            case Constants.MOVIES, Constants.SHOWS -> criteria + ": " + plan();
+            case Constants.ACTORS -> criteria + ": " + switch (criteria) {
+                case Constants.AWARDS -> "POSTING_SORT shortest award list";
+                case Constants.CO_STARS -> "INDEX_SCAN co-star graph row " + sortType;
+                case Constants.DEGREES_OF_SEPARATION -> "BIDIRECTIONAL_BFS co-star graph";
+                default -> "FULL_SCAN actors";
+            };
+            case Constants.USERS -> criteria + ": INDEX_SCAN num_ratings " + sortType;
+            default -> criteria + ": unsupported";
+        };
     }
 
     /**
      * Finds the most active users.
-     * @return output message as String
+     * @return names of the results, in query order
      */
-    private String ratingsUsers() {
-        List<User> users = retrieveTargetObjects(objectType).stream().map(x -> (User) x)
-                            .collect(Collectors.toList());
+    private List<String> ratingsUsers() {
+        UserActivityIndex activity = Repository.getInstance().getUserActivity();
 
         /**
-         * Every valid user should've gave at least a review.
+         * Every valid user should've gave at least a review; the index
+         * contains only those users, sorted by their number of reviews.
          */
-        users = users.stream().filter(x -> Utils.ratingsOfAUser(x) >= 1)
+        Iterator<User> iterator = switch (sortType) {
+            case Constants.ASC -> activity.iterator();
+            case Constants.DESC -> activity.descendingIterator();
+            default -> retrieveTargetObjects(objectType).stream().map(x -> (User) x)
+                            .filter(x -> activity.getCount(x) >= 1).iterator();
+        };
+
+        List<String> users = new ArrayList<>();
+        while (users.size() < number && iterator.hasNext()) {
+            users.add(iterator.next().getUsername());
+        }
+        Profiler.getInstance().mark(Profiler.Stage.FILTER, activity.size(), users.size());
+
+        return users;
+    }
+
+    /**
+     * Returns a page of the query result: the first N results that come
+     * after the cursor, which is given by the previous page. The cursor holds
+     * the sort key and the name of the last result of the previous page:
+     * <ul>
+     * <li>the queries with a sorted index ("asc" / "desc") are read from the
+     * index, starting right after that result, so the cost of a page doesn't
+     * depend on how many pages came before it;</li>
+     * <li>the other queries sorted by a score ("asc" / "desc") score every
+     * valid result and keep the first N that come after the cursor in a heap
+     * of at most N results;</li>
+     * <li>the remaining queries (co-stars, searches, groups, unknown sort
+     * types) are computed whole, and the cursor is the rank of the result.</li>
+     * </ul>
+     * @param cursor cursor returned by the previous page (null for the first page)
+     * @return the page and the cursor of the next one
+     * @throws IllegalArgumentException if the cursor is malformed, belongs to
+     *         another query or the database changed since it was created
+     */
+    public QueryPage page(final String cursor) {
+        boolean ascending = sortType.equals(Constants.ASC);
+        boolean descending = sortType.equals(Constants.DESC);
+        boolean users = objectType.equals(Constants.USERS)
+                && criteria.equals(Constants.NUM_RATINGS);
+        boolean videos = objectType.equals(Constants.MOVIES) || objectType.equals(Constants.SHOWS);
+        boolean actors = objectType.equals(Constants.ACTORS);
+
+        int query = queryKey().hashCode();
+        String versions = versionStamp();
+        QueryCursor from = (cursor != null) ? QueryCursor.decode(cursor, query, versions) : null;
+
+        List<QueryCursor> page = null;
+        if ((ascending || descending) && (users || (videos && sortedIndex() != null))) {
+            page = seekIndex(from, query, versions);
+        } else if (ascending || descending) {
+            Map<Video, Double> videoScores = videos ? videoScores() : null;
+            Map<Actor, Double> actorScores = actors ? actorScores() : null;
+            if (videoScores != null) {
+                page = seekScores(videoScores, Video::getTitle, from, query, versions);
+            } else if (actorScores != null) {
+                page = seekScores(actorScores, Actor::getName, from, query, versions);
+            }
+        }
+        if (page == null) {
+            page = seekRank(from, query, versions);
+        }
+
+        List<String> results = page.stream().map(QueryCursor::getName)
                 .collect(Collectors.toList());
-        users = CustomSort.sortUsers(users, users.stream().collect(Collectors.toMap(x -> x,
-                x -> (double) Utils.ratingsOfAUser(x))), sortType);
+        /**
+         * A page shorter than N is the last one; a full page may be
+         * followed by an empty one.
+         */
+        String next = (results.size() == number && number > 0)
+                ? page.get(page.size() - 1).encode() : null;
+        return new QueryPage(results, next);
+    }
 
-        return "Query result: " + users.subList(0, Math.min(users.size(), number)).stream()
-                                    .map(User::getUsername).collect(Collectors.toList());
+    /**
+     * Reads a page of a query with a sorted index ("asc" / "desc").
+     * @param from cursor of the previous page (null for the first page)
+     * @param query hash of the parameters of the query
+     * @param versions versions of the data the result depends on
+     * @return the results of the page, as cursors
+     */
+    private List<QueryCursor> seekIndex(final QueryCursor from, final int query,
+                                        final String versions) {
+        boolean ascending = sortType.equals(Constants.ASC);
+        Repository repo = Repository.getInstance();
+        List<QueryCursor> results = new ArrayList<>();
+        if (objectType.equals(Constants.USERS)) {
+            UserActivityIndex activity = repo.getUserActivity();
+            User start = null;
+            if (from != null) {
+                List<User> users = repo.getUsers();
+                start = (from.getPosition() >= 0 && from.getPosition() < users.size())
+                        ? users.get(from.getPosition()) : null;
+                if (start == null || activity.getCount(start) != (int) from.getScore()
+                        || !start.getUsername().equals(from.getName())) {
+                    throw new IllegalArgumentException("the cursor doesn't match the database");
+                }
+            }
+
+            Iterator<User> iterator;
+            if (start == null) {
+                iterator = ascending ? activity.iterator() : activity.descendingIterator();
+            } else {
+                iterator = ascending ? activity.iteratorAfter(start)
+                                     : activity.descendingIteratorAfter(start);
+            }
+            while (results.size() < number && iterator.hasNext()) {
+                User user = iterator.next();
+                results.add(new QueryCursor(query, versions, activity.getCount(user),
+                        activity.getPosition(user), user.getUsername()));
+            }
+        } else {
+            VideoIndex index = sortedIndex();
+            Video start = null;
+            if (from != null) {
+                List<Video> catalog = repo.getVideos();
+                start = (from.getPosition() >= 0 && from.getPosition() < catalog.size())
+                        ? catalog.get(from.getPosition()) : null;
+                if (start == null || !index.contains(start)
+                        || Double.compare(index.getKey(start), from.getScore()) != 0
+                        || !start.getTitle().equals(from.getName())) {
+                    throw new IllegalArgumentException("the cursor doesn't match the database");
+                }
+            }
+
+            Iterator<Video> iterator;
+            if (start == null) {
+                iterator = ascending ? index.iterator() : index.descendingIterator();
+            } else {
+                iterator = ascending ? index.iteratorAfter(start)
+                                     : index.descendingIteratorAfter(start);
+            }
+            DoublePredicate valid = validKey();
+            VideoFilter filter = VideoFilter.compile(filters, videoIndexes());
+            while (results.size() < number && iterator.hasNext()) {
+                Video video = iterator.next();
+                if (valid.test(index.getKey(video)) && filter.test(video)) {
+                    results.add(new QueryCursor(query, versions, index.getKey(video),
+                            repo.getPosition(video), video.getTitle()));
+                }
+            }
+        }
+
+
+        return results;
+    }
+
+    /**
+     * Reads a page of a query sorted by a score ("asc" / "desc"): the results
+     * are compared by their score, then by their name (as CustomSort does),
+     * then by their position in the scores map (as the stable sort does); the
+     * first N results that come after the cursor are kept in a heap whose
+     * head is the last of them.
+     * @param scores valid results mapped to their score
+     * @param name name of a result
+     * @param from cursor of the previous page (null for the first page)
+     * @param query hash of the parameters of the query
+     * @param versions versions of the data the result depends on
+     * @param <T> type of the results
+     * @return the results of the page, as cursors
+     */
+    private <T> List<QueryCursor> seekScores(final Map<T, Double> scores,
+                                             final Function<T, String> name,
+                                             final QueryCursor from, final int query,
+                                             final String versions) {
+        Comparator<QueryCursor> byScore = Comparator.comparingDouble(QueryCursor::getScore)
+                .thenComparing(QueryCursor::getName);
+        Comparator<QueryCursor> order = (sortType.equals(Constants.ASC) ? byScore
+                : byScore.reversed()).thenComparingInt(QueryCursor::getPosition);
+
+        PriorityQueue<QueryCursor> heap = new PriorityQueue<>(order.reversed());
+        int position = 0;
+        for (Map.Entry<T, Double> entry : scores.entrySet()) {
+            QueryCursor result = new QueryCursor(query, versions, entry.getValue(), position++,
+                    name.apply(entry.getKey()));
+            if (from != null && order.compare(result, from) <= 0) {
+                continue;
+            }
+            if (heap.size() < number) {
+                heap.add(result);
+            } else if (!heap.isEmpty() && order.compare(result, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(result);
+            }
+        }
+
+        List<QueryCursor> results = new ArrayList<>(heap);
+        results.sort(order);
+        return results;
+    }
+
+    /**
+     * Reads a page of a query whose order doesn't come from a score: the
+     * whole result is computed and the page starts after the rank of the
+     * last result of the previous page.
+     * @param from cursor of the previous page (null for the first page)
+     * @param query hash of the parameters of the query
+     * @param versions versions of the data the result depends on
+     * @return the results of the page, as cursors
+     */
+    private List<QueryCursor> seekRank(final QueryCursor from, final int query,
+                                       final String versions) {
+        List<String> all = new Query(getActionId(), objectType, Integer.MAX_VALUE, filters,
+                sortType, criteria).results();
+        if (all == null) {
+            return List.of();
+        }
+        int start = 0;
+        if (from != null) {
+            if (from.getPosition() < 0 || from.getPosition() >= all.size()
+                    || !all.get(from.getPosition()).equals(from.getName())) {
+                throw new IllegalArgumentException("the cursor doesn't match the database");
+            }
+            start = from.getPosition() + 1;
+        }
+
+        List<QueryCursor> results = new ArrayList<>();
+        for (int i = start; i < Math.min(all.size(), start + number); i++) {
+            results.add(new QueryCursor(query, versions, i, i, all.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * @return versions of the data the result of the query depends on
+     */
+    private String versionStamp() {
+        Repository repo = Repository.getInstance();
+        StringBuilder stamp = new StringBuilder()
+                .append(repo.getVersion(VersionCounter.CATALOG));
+        for (VersionCounter counter : dependencies()) {
+            stamp.append('.').append(repo.getVersion(counter));
+        }
+        return stamp.toString();
+    }
+
+    /**
+     * Builds a key that is the same for every query returning the same result:
+     * only the filters used by the criteria are included, the words and
+     * awards filters are treated as sets, and only the year / genre that the
+     * video filter reads (the first one) is included.
+     * @return normalized parameters of the query
+     */
+    private String cacheKey() {
+        return queryKey() + '|' + number;
+    }
+
+    /**
+     * @return normalized parameters of the query, except the number of results
+     *         (the same for all the pages of a query)
+     */
+    private String queryKey() {
+        StringBuilder key = new StringBuilder().append(objectType).append('|').append(criteria)
+                .append('|').append(sortType);
+
+        if (filters != null) {
+            if (criteria.equals(Constants.CO_STARS)
+                    || criteria.equals(Constants.DEGREES_OF_SEPARATION)) {
+                /**
+                 * The names of the actors are matched exactly, in the given order.
+                 */
+                key.append('|').append(actorNames());
+            } else if (criteria.equals(Constants.AUTOCOMPLETE)
+                    || criteria.equals(Constants.SUBSTRING)) {
+                key.append('|').append(searchText().toLowerCase(Locale.ROOT));
+            } else if (objectType.equals(Constants.ACTORS)) {
+                key.append('|').append(normalizeFilter(Constants.WORDS_POS, true))
+                        .append('|').append(normalizeFilter(Constants.AWARDS_POS, false));
+            } else if (!objectType.equals(Constants.USERS)) {
+                key.append('|').append(VideoFilter.first(filters.get(Constants.YEAR_POS)))
+                        .append('|').append(VideoFilter.first(filters.get(Constants.GENRE_POS)));
+            }
+        }
+
+        return key.toString();
+    }
+
+    private String normalizeFilter(final int position, final boolean ignoreCase) {
+        List<String> filter = (filters.size() > position) ? filters.get(position) : null;
+        if (filter == null) {
+            return "null";
+        }
+
+        return filter.stream().map(x -> (x != null && ignoreCase) ? x.toLowerCase() : x)
+                .map(String::valueOf).sorted().distinct().collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return the parts of the database whose modification changes the result
+     */
+    private Set<VersionCounter> dependencies() {
+        return switch (criteria) {
+            case Constants.AVERAGE, Constants.RATINGS, Constants.NUM_RATINGS,
+                 Constants.MEDIAN_RATING, Constants.P90_RATING, Constants.MOST_POLARIZING ->
+                    EnumSet.of(VersionCounter.RATINGS);
+            case Constants.FAVORITE -> EnumSet.of(VersionCounter.FAVORITES);
+            case Constants.MOST_VIEWED, Constants.TRENDING, Constants.AUTOCOMPLETE,
+                 Constants.SUBSTRING, Constants.APPROX_MOST_VIEWED, Constants.DISTINCT_VIEWERS ->
+                    EnumSet.of(VersionCounter.VIEWS);
+            case Constants.GENRE_STATS, Constants.YEAR_STATS, Constants.GENRE_YEAR_STATS ->
+                    EnumSet.of(VersionCounter.VIEWS, VersionCounter.RATINGS,
+                            VersionCounter.FAVORITES);
+            default -> EnumSet.noneOf(VersionCounter.class);
+        };
     }
 
     /**
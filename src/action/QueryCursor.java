@@ -0,0 +1,99 @@
+package action;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a page in the result of a query: the sort key and the
+ * tiebreak key of the last result that was returned, together with the
+ * query it belongs to and the versions of the data the result depends on.
+ * <p>
+ * Cursors are handed out as opaque strings; a cursor can only be used
+ * with the query that created it, while the database is unchanged.
+ */
+final class QueryCursor {
+    private static final String SEPARATOR = ":";
+    private static final int FIELDS = 5;
+    private static final int RADIX = 16;
+
+    private final int query;
+    private final String versions;
+    private final double score;
+    private final int position;
+    private final String name;
+
+    /**
+     * @param query hash of the parameters of the query (except the number)
+     * @param versions versions of the data the result depends on
+     * @param score sort key of the last result
+     * @param position position of the last result: in the database (indexed
+     *                 videos and users), in the scores (other scored queries)
+     *                 or in the result (the rest)
+     * @param name title / username of the last result
+     */
+    QueryCursor(final int query, final String versions, final double score,
+                final int position, final String name) {
+        this.query = query;
+        this.versions = versions;
+        this.score = score;
+        this.position = position;
+        this.name = name;
+    }
+
+    double getScore() {
+        return score;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the cursor as an opaque string
+     */
+    String encode() {
+        String fields = Integer.toHexString(query) + SEPARATOR + versions + SEPARATOR
+                + Long.toHexString(Double.doubleToLongBits(score)) + SEPARATOR + position
+                + SEPARATOR + name;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(fields.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor and checks that it can be used.
+     * @param cursor opaque string returned by encode()
+     * @param query hash of the parameters of the query that uses the cursor
+     * @param versions current versions of the data the result depends on
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed, was created
+     *         by another query or the database changed since it was created
+     */
+    static QueryCursor decode(final String cursor, final int query, final String versions) {
+        QueryCursor decoded;
+        try {
+            String[] fields = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8).split(SEPARATOR, FIELDS);
+            if (fields.length != FIELDS) {
+                throw new IllegalArgumentException("invalid cursor");
+            }
+            decoded = new QueryCursor(Integer.parseUnsignedInt(fields[0], RADIX), fields[1],
+                    Double.longBitsToDouble(Long.parseUnsignedLong(fields[2], RADIX)),
+                    Integer.parseInt(fields[3]), fields[4]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor", e);
+        }
+
+        if (decoded.query != query) {
+            throw new IllegalArgumentException("the cursor belongs to another query");
+        }
+        if (!decoded.versions.equals(versions)) {
+            throw new IllegalArgumentException("the database changed since the cursor "
+                    + "was created");
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,41 @@
+package action;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the result of a query, with the cursor of the next page.
+ */
+public final class QueryPage {
+    private final List<String> results;
+    private final String cursor;
+
+    /**
+     * @param results names of the objects on the page, in query order
+     * @param cursor cursor of the next page (null if this is the last one)
+     */
+    QueryPage(final List<String> results, final String cursor) {
+        this.results = Collections.unmodifiableList(results);
+        this.cursor = cursor;
+    }
+
+    public List<String> getResults() {
+        return results;
+    }
+
+    /**
+     * @return opaque cursor to be passed to Query.page() for the next page;
+     *         null, if there are no more results
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return the page in the output format of a query
+     */
+    @Override
+    public String toString() {
+        return "Query result: " + results;
+    }
+}
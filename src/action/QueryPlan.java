@@ -0,0 +1,88 @@
+package action;
+
+import entertainment.Video;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Access path chosen for a video query, with its estimated cost
+ * (the number of videos visited, plus the comparisons of a sort).
+ */
+public final class QueryPlan {
+    /**
+     * How the candidate videos are retrieved
+     */
+    public enum Access {
+        /**
+         * Walk the index sorted by the criteria, filter on the fly
+         * and stop after N results
+         */
+        INDEX_SCAN,
+        /**
+         * Take the videos of the filtered year or genre, filter them
+         * and sort the ones that remain
+         */
+        POSTING_SORT,
+        /**
+         * Filter all the videos and sort the ones that remain
+         */
+        FULL_SCAN
+    }
+
+    private final Access access;
+    private final String source;
+    private final VideoFilter filter;
+    private final List<Video> candidates;
+    private final double estimatedRows;
+    private final double cost;
+
+    /**
+     * @param access how the candidates are retrieved
+     * @param source name of the index or of the list the candidates come from
+     * @param filter compiled filters of the query
+     * @param candidates videos retrieved for POSTING_SORT / FULL_SCAN
+     *                   (null for INDEX_SCAN)
+     * @param estimatedRows estimated number of videos that pass the filters
+     * @param cost estimated cost of the plan
+     */
+    public QueryPlan(final Access access, final String source, final VideoFilter filter,
+                     final List<Video> candidates, final double estimatedRows,
+                     final double cost) {
+        this.access = access;
+        this.source = source;
+        this.filter = filter;
+        this.candidates = candidates;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
+    }
+
+    public Access getAccess() {
+        return access;
+    }
+
+    public VideoFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return videos to be filtered and sorted (not used by INDEX_SCAN)
+     */
+    public List<Video> getCandidates() {
+        return candidates;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    /**
+     * @return description of the plan, e.g.
+     *         "INDEX_SCAN ratings desc filter=[year=2018] rows~3.0 cost~10.0"
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s %s filter=[%s] rows~%.1f cost~%.1f", access,
+                source, filter, estimatedRows, cost);
+    }
+}
@@ -0,0 +1,83 @@
+package action;
+
+import common.Constants;
+import entertainment.Video;
+import repository.CatalogIndexes;
+
+import java.util.List;
+
+/**
+ * Chooses the access path of a video query, using the statistics kept by
+ * CatalogIndexes (number of videos per year and per genre) and assuming
+ * the year and the genre filters are independent.
+ * <p>
+ * An index scan visits about N / selectivity videos before it finds N
+ * results (every video, when fewer than N match), while retrieving the
+ * videos of the filtered year / genre costs the size of that list plus the
+ * sort of the matching videos; the cheaper of the two is chosen.
+ */
+public final class QueryPlanner {
+    private QueryPlanner() {
+    }
+
+    /**
+     * @param indexes indexes over the queried videos
+     * @param index name of the index sorted by the criteria
+     *              (null if the criteria has no index)
+     * @param all the queried videos, in database order
+     * @param filter compiled filters of the query
+     * @param number number of results requested
+     * @param sortType requested order
+     * @return the cheapest plan
+     */
+    public static QueryPlan plan(final CatalogIndexes indexes, final String index,
+                                 final List<Video> all, final VideoFilter filter,
+                                 final int number, final String sortType) {
+        double size = indexes.size();
+        double selectivity = 1.0;
+        List<Video> candidates = all;
+        String source = "all";
+
+        if (filter.hasYear()) {
+            List<Video> byYear = indexes.getVideosByYear(filter.getYear());
+            selectivity *= fraction(byYear.size(), size);
+            candidates = byYear;
+            source = "year=" + filter.getYear();
+        }
+        if (filter.getGenre() != null) {
+            List<Video> byGenre = indexes.getVideosByGenre(filter.getGenre());
+            selectivity *= fraction(byGenre.size(), size);
+            if (byGenre.size() < candidates.size()) {
+                candidates = byGenre;
+                source = "genre=" + filter.getGenre();
+            }
+        }
+        double rows = size * selectivity;
+
+        /**
+         * An unknown order keeps the database order, so nothing is sorted.
+         */
+        boolean ordered = sortType.equals(Constants.ASC) || sortType.equals(Constants.DESC);
+        double sortCost = candidates.size() + (ordered ? sortComparisons(rows) : 0);
+        QueryPlan.Access sortAccess = (candidates == all) ? QueryPlan.Access.FULL_SCAN
+                                                         : QueryPlan.Access.POSTING_SORT;
+        if (index == null || !ordered) {
+            return new QueryPlan(sortAccess, source, filter, candidates, rows, sortCost);
+        }
+
+        double scanCost = (rows < number) ? size : Math.min(size, number / selectivity);
+        if (scanCost <= sortCost) {
+            return new QueryPlan(QueryPlan.Access.INDEX_SCAN, index + " " + sortType, filter,
+                    null, rows, scanCost);
+        }
+        return new QueryPlan(sortAccess, source, filter, candidates, rows, sortCost);
+    }
+
+    private static double fraction(final int count, final double size) {
+        return (size == 0) ? 0 : count / size;
+    }
+
+    private static double sortComparisons(final double rows) {
+        return (rows < 2) ? rows : rows * Math.log(rows) / Math.log(2);
+    }
+}
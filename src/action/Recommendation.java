@@ -2,46 +2,118 @@ package action;
 
 import common.Constants;
 import entertainment.Video;
+import repository.CoViewMatrix;
+import repository.GenreAffinity;
 import repository.Repository;
+import repository.VersionCounter;
+import repository.VideoIndex;
 import user.User;
-import utils.Utils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class Recommendation extends Action {
+    /**
+     * Number of videos returned by a "more_like_this" recommendation
+     */
+    public static final int SIMILAR_VIDEOS = 5;
+    /**
+     * Number of videos returned by a "personalized_search" recommendation
+     */
+    public static final int PERSONALIZED_RESULTS = 10;
+    /**
+     * Weight of the user's genre affinity (between -1 and 1) in the score of
+     * a personalized search result, next to the average rating of the video
+     */
+    public static final double AFFINITY_WEIGHT = 5.0;
+
     private final String username;
     private final String type;
     private final String genre;
+    private final String title;
 
     public Recommendation(final int actionId, final String username,
                           final String type, final String genre) {
+        this(actionId, username, type, genre, null);
+    }
+
+    public Recommendation(final int actionId, final String username,
+                          final String type, final String genre, final String title) {
         super(actionId);
         this.username = username;
         this.type = type;
         this.genre = genre;
+        this.title = title;
     }
 
     /**
      * Generate a recommendation whose type is specified by the
-     * class fields, based on the info stored in database.
+     * class fields, based on the info stored in database (the result
+     * is reused from the recommendation cache if neither the history of
+     * the user, nor the data it depends on changed).
      * @return message generated after trying to create a recommendation
      */
     @Override
     public String apply() {
+        Profiler profiler = Profiler.getInstance();
+        profiler.begin(getActionId(), "recommendation " + type);
+
+        User user = Repository.getInstance().findUser(username);
+        String result = (user == null) ? execute()
+                : ResultCache.getRecommendationCache().computeIfAbsent(type + '|' + username
+                        + '|' + genre + '|' + title, user, dependencies(), this::execute);
+
+        profiler.end();
+        return result;
+    }
+
+    /**
+     * Computes the recommendation on the current state of the database.
+     * @return recommendation result
+     */
+    private String execute() {
+        Profiler.getInstance().computing();
         return switch (type) {
             case Constants.STANDARD -> standard();
             case Constants.BEST_UNSEEN -> bestUnseen();
             case Constants.POPULAR_GENRE -> popular();
             case Constants.FAVORITE -> favorite();
             case Constants.SEARCH -> search();
+            case Constants.PERSONALIZED_SEARCH -> personalizedSearch();
+            case Constants.SIMILAR_USERS_WATCHED -> similarUsersWatched();
+            case Constants.MORE_LIKE_THIS -> moreLikeThis();
             default -> null;
         };
     }
 
+    /**
+     * Every recommendation depends on the history of the user;
+     * these are the global data that can change it as well.
+     * @return the parts of the database whose modification changes the result
+     */
+    private Set<VersionCounter> dependencies() {
+        return switch (type) {
+            case Constants.BEST_UNSEEN, Constants.SEARCH, Constants.PERSONALIZED_SEARCH ->
+                    EnumSet.of(VersionCounter.RATINGS);
+            case Constants.FAVORITE -> EnumSet.of(VersionCounter.FAVORITES);
+            case Constants.POPULAR_GENRE, Constants.SIMILAR_USERS_WATCHED ->
+                    EnumSet.of(VersionCounter.VIEWS);
+            default -> EnumSet.noneOf(VersionCounter.class);
+        };
+    }
+
     /**
      * Returns the first video which haven't been seen by the user.
      * @return output message as String
@@ -54,11 +126,9 @@ public final class Recommendation extends Action {
             return "StandardRecommendation cannot be applied!";
         }
 
-        List<Video> videos = Stream.concat(repo.getMovies().stream(), repo.getSerials().stream())
-                                .collect(Collectors.toList());
-        Video recommendation = videos.stream()
-                                .filter(x -> !user.getHistory().containsKey(x.getTitle()))
-                                .findFirst().orElse(null);
+        Video recommendation = repo.findFirstUnseen(user);
+        Profiler.getInstance().mark(Profiler.Stage.RETRIEVAL, repo.getVideos().size(),
+                (recommendation == null) ? 0 : 1);
 
         return (recommendation == null) ? "StandardRecommendation cannot be applied!"
                     : "StandardRecommendation result: " + recommendation.getTitle();
@@ -77,20 +147,20 @@ public final class Recommendation extends Action {
         }
 
         /**
-         * Filter only the videos that wasn't watched.
-         */
-        List<Video> videos = Stream.concat(repo.getMovies().stream(), repo.getSerials().stream())
-                                .collect(Collectors.toList());
-        videos = videos.stream().filter(x -> !user.getHistory().containsKey(x.getTitle()))
-                                .collect(Collectors.toList());
-        /**
-         * Sort the unseen videos by their rating, using
-         * the database order if ratings are equal.
+         * Walk the videos sorted by their rating (using the database
+         * order if ratings are equal) until an unseen one is found.
          */
-        videos = CustomSort.sortVideos(videos, videos.stream()
-                    .collect(Collectors.toMap(x -> x, Video::getAverageRating)), "db_desc");
-
-        Video targetVideo = videos.stream().findFirst().orElse(null);
+        Video targetVideo = null;
+        Iterator<Video> bestRated = repo.getBestRated().iterator();
+        int visited = 0;
+        while (targetVideo == null && bestRated.hasNext()) {
+            Video video = bestRated.next();
+            visited++;
+            if (!user.getHistory().containsKey(video.getTitle())) {
+                targetVideo = video;
+            }
+        }
+        Profiler.getInstance().mark(Profiler.Stage.FILTER, visited, (targetVideo == null) ? 0 : 1);
 
         return (targetVideo == null) ? "BestRatedUnseenRecommendation cannot be applied!"
                     : "BestRatedUnseenRecommendation result: " + targetVideo.getTitle();
@@ -108,51 +178,23 @@ public final class Recommendation extends Action {
             return "PopularRecommendation cannot be applied!";
         }
 
-        List<Video> videos = Stream.concat(repo.getMovies().stream(), repo.getSerials().stream())
-                                .collect(Collectors.toList());
-
         /**
-         * Get the unique genres.
+         * Walk the genres from the most popular one; every genre bucket
+         * keeps its videos in database order.
          */
-        List<String> genres = new ArrayList<>();
-        for (Video video : videos) {
-            for (String currentGenre : video.getGenres()) {
-                if (!genres.contains(currentGenre)) {
-                    genres.add(currentGenre);
+        Profiler profiler = Profiler.getInstance();
+        Iterator<String> genres = repo.getGenrePopularity().iterator();
+        int visited = 0;
+        while (genres.hasNext()) {
+            for (Video video : repo.getGenrePopularity().getVideos(genres.next())) {
+                visited++;
+                if (!user.getHistory().containsKey(video.getTitle())) {
+                    profiler.mark(Profiler.Stage.FILTER, visited, 1);
+                    return "PopularRecommendation result: " + video.getTitle();
                 }
             }
         }
-        /**
-         * Every genre bucket will have a list of videos
-         * sorted by the position in the database (aka unsorted).
-         */
-        List<List<Video>> genreBuckets = new ArrayList<>();
-        for (String currentGenre : genres) {
-            List<Video> filteredVideos = videos.stream()
-                                            .filter(x -> x.getGenres().contains(currentGenre))
-                                            .collect(Collectors.toList());
-            genreBuckets.add(filteredVideos);
-        }
-        /**
-         * Sort the genres by their popularity, in descending order.
-         */
-        genreBuckets.sort(new Comparator<List<Video>>() {
-            @Override
-            public int compare(final List<Video> o1, final List<Video> o2) {
-                return Integer.compare(o1.stream()
-                        .map(x -> Utils.viewsOfAVideo(x.getTitle())).reduce(0, Integer::sum),
-                        o2.stream().map(x -> Utils.viewsOfAVideo(x.getTitle()))
-                        .reduce(0, Integer::sum)) * (-1);
-            }
-        });
-
-        for (List<Video> bucket : genreBuckets) {
-            Video target = bucket.stream().filter(x -> !user.getHistory().containsKey(x.getTitle()))
-                                .findFirst().orElse(null);
-            if (target != null) {
-                return "PopularRecommendation result: " + target.getTitle();
-            }
-        }
+        profiler.mark(Profiler.Stage.FILTER, visited, 0);
 
         return "PopularRecommendation cannot be applied!";
     }
@@ -170,29 +212,104 @@ public final class Recommendation extends Action {
             return "FavoriteRecommendation cannot be applied!";
         }
 
+        Profiler profiler = Profiler.getInstance();
         List<Video> videos = Stream.concat(repo.getMovies().stream(), repo.getSerials().stream())
                                 .collect(Collectors.toList());
+        profiler.mark(Profiler.Stage.RETRIEVAL, videos.size(), videos.size());
         /**
          * Remove the videos which nobody added to favorites.
          */
+        Map<String, Integer> favoriteCounts = ScoreVectors.getInstance().getFavorites();
         List<Video> validVideos = videos.stream()
-                                    .filter(x -> (Utils.favoriteApparitions(x.getTitle()) != 0))
+                                    .filter(x -> favoriteCounts.containsKey(x.getTitle()))
                                     .collect(Collectors.toList());
+        profiler.mark(Profiler.Stage.FILTER, videos.size(), validVideos.size());
         /**
          * Sort by the number of apparitions in favorites lists.
          */
-        validVideos = CustomSort.sortVideos(validVideos, validVideos.stream()
-                        .collect(Collectors.toMap(x -> x,
-                        x -> (double) Utils.favoriteApparitions(x.getTitle()))), "db_desc");
+        Map<Video, Double> favorites = validVideos.stream().collect(Collectors.toMap(x -> x,
+                        x -> (double) favoriteCounts.getOrDefault(x.getTitle(), 0)));
+        profiler.mark(Profiler.Stage.SCORING, validVideos.size(), favorites.size());
+        validVideos = CustomSort.sortVideos(validVideos, favorites, "db_desc");
+        profiler.mark(Profiler.Stage.SORT, validVideos.size(), validVideos.size());
 
         Video targetVideo = validVideos.stream()
                             .filter(x -> !user.getHistory().containsKey(x.getTitle()))
                             .findFirst().orElse(null);
+        profiler.mark(Profiler.Stage.FILTER, validVideos.size(), (targetVideo == null) ? 0 : 1);
 
         return (targetVideo == null) ? "FavoriteRecommendation cannot be applied!"
                                     : "FavoriteRecommendation result: " + targetVideo.getTitle();
     }
 
+    /**
+     * Returns the unseen video most often watched by the users that watched
+     * the same videos as the user: every unseen neighbour (in the co-view
+     * matrix) of a seen title gets the number of users that watched both
+     * titles, and the video with the highest total wins (the ties are
+     * broken by the database order).
+     * @return output message as String
+     */
+    private String similarUsersWatched() {
+        Repository repo = Repository.getInstance();
+        User user = repo.findUser(username);
+
+        if (user == null) {
+            return "SimilarUsersWatchedRecommendation cannot be applied!";
+        }
+
+        Profiler profiler = Profiler.getInstance();
+        CoViewMatrix coViews = repo.getCoViews();
+        Map<String, Integer> scores = new HashMap<>();
+        for (String seen : user.getHistory().keySet()) {
+            for (String neighbour : coViews.getNeighbours(seen)) {
+                if (!user.getHistory().containsKey(neighbour)) {
+                    scores.merge(neighbour, coViews.getCount(seen, neighbour), Integer::sum);
+                }
+            }
+        }
+        profiler.mark(Profiler.Stage.SCORING, user.getHistory().size(), scores.size());
+
+        Video targetVideo = null;
+        int bestScore = 0;
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            Video video = repo.findVideo(entry.getKey());
+            if (video != null && (targetVideo == null || entry.getValue() > bestScore
+                    || entry.getValue() == bestScore
+                    && repo.getPosition(video) < repo.getPosition(targetVideo))) {
+                targetVideo = video;
+                bestScore = entry.getValue();
+            }
+        }
+        profiler.mark(Profiler.Stage.SORT, scores.size(), (targetVideo == null) ? 0 : 1);
+
+        return (targetVideo == null) ? "SimilarUsersWatchedRecommendation cannot be applied!"
+                : "SimilarUsersWatchedRecommendation result: " + targetVideo.getTitle();
+    }
+
+    /**
+     * Returns the videos most similar to the requested title (by the overlap
+     * of their cast and genres), from the candidates found by the
+     * locality-sensitive hashing of the similarity index.
+     * @return output message as String
+     */
+    private String moreLikeThis() {
+        Repository repo = Repository.getInstance();
+        Video video = repo.findVideo(title);
+
+        if (video == null) {
+            return "MoreLikeThisRecommendation cannot be applied!";
+        }
+
+        List<Video> similar = repo.getSimilarity().mostSimilar(video, SIMILAR_VIDEOS);
+        Profiler.getInstance().mark(Profiler.Stage.SORT, repo.getVideos().size(),
+                similar.size());
+
+        return similar.isEmpty() ? "MoreLikeThisRecommendation cannot be applied!"
+                : "MoreLikeThisRecommendation result: " + similar.stream().map(Video::getTitle)
+                        .collect(Collectors.toList());
+    }
+
     /**
      * Get all the unwatched videos from a specific genre, sorted
      * by their average rating.
@@ -201,28 +318,114 @@ public final class Recommendation extends Action {
     private String search() {
         Repository repo = Repository.getInstance();
         User user = repo.findUser(username);
+        VideoIndex index = repo.getRatingsByGenre(genre);
 
-        if (user == null || !user.getSubscriptionType().equals(Constants.PREMIUM)) {
+        if (user == null || !user.getSubscriptionType().equals(Constants.PREMIUM)
+                || index == null) {
+            Profiler.getInstance().mark(Profiler.Stage.FILTER,
+                    (index != null) ? index.size() : 0, 0);
             return "SearchRecommendation cannot be applied!";
         }
 
-        List<Video> videos = Stream.concat(repo.getMovies().stream(), repo.getSerials().stream())
-                .collect(Collectors.toList());
-        List<Video> validVideos = videos.stream().filter(x -> x.getGenres().contains(genre))
-                                    .collect(Collectors.toList());
         /**
-         * Remove the seen videos
+         * All the results are needed, so the index is walked directly (the
+         * laziness of searchStream() would only add overhead) and the message
+         * is built on the way, without collecting the results first.
          */
-        validVideos = validVideos.stream().filter(x -> !user.getHistory()
-                        .containsKey(x.getTitle())).collect(Collectors.toList());
+        StringBuilder message = new StringBuilder("SearchRecommendation result: [");
+        int count = 0;
+        Iterator<Video> videos = index.iterator();
+        while (videos.hasNext()) {
+            String title = videos.next().getTitle();
+            if (!user.getHistory().containsKey(title)) {
+                message.append((count == 0) ? "" : ", ").append(title);
+                count++;
+            }
+        }
+        Profiler.getInstance().mark(Profiler.Stage.FILTER, index.size(), count);
+
+        return (count == 0) ? "SearchRecommendation cannot be applied!"
+                : message.append(']').toString();
+    }
+
+    /**
+     * Get the unwatched videos (from a specific genre, if one is given) that
+     * fit the user best: the score of a video is its average rating plus
+     * AFFINITY_WEIGHT times the affinity of the user for its genres. Only the
+     * best PERSONALIZED_RESULTS videos are kept while the candidates are
+     * scored, so the cost is O(candidates * log K), as for a global sort.
+     * @return output message as String
+     */
+    private String personalizedSearch() {
+        Repository repo = Repository.getInstance();
+        User user = repo.findUser(username);
+        VideoIndex index = (genre != null) ? repo.getRatingsByGenre(genre) : repo.getBestRated();
+
+        if (user == null || !user.getSubscriptionType().equals(Constants.PREMIUM)
+                || index == null) {
+            return "PersonalizedSearchRecommendation cannot be applied!";
+        }
+
         /**
-         * Sort the remaining videos
+         * Min-heap of the best videos found so far, the worst one on top.
          */
-        validVideos = CustomSort.sortVideos(validVideos, validVideos.stream()
-                        .collect(Collectors.toMap(x -> x, Video::getAverageRating)), Constants.ASC);
+        GenreAffinity affinities = repo.getAffinities();
+        Map<Video, Double> scores = new HashMap<>();
+        Comparator<Video> best = Comparator.comparing((Video x) -> -scores.get(x))
+                .thenComparing(Video::getTitle).thenComparing(repo::getPosition);
+        PriorityQueue<Video> top = new PriorityQueue<>(PERSONALIZED_RESULTS + 1,
+                best.reversed());
+        Iterator<Video> candidates = index.iterator();
+        while (candidates.hasNext()) {
+            Video video = candidates.next();
+            if (user.getHistory().containsKey(video.getTitle())) {
+                continue;
+            }
+
+            scores.put(video, index.getKey(video)
+                    + AFFINITY_WEIGHT * affinities.affinity(user, video));
+            top.add(video);
+            if (top.size() > PERSONALIZED_RESULTS) {
+                scores.remove(top.poll());
+            }
+        }
+        Profiler.getInstance().mark(Profiler.Stage.SCORING, index.size(), top.size());
+
+        if (top.isEmpty()) {
+            return "PersonalizedSearchRecommendation cannot be applied!";
+        }
+
+        List<Video> results = new ArrayList<>(top);
+        results.sort(best);
+        Profiler.getInstance().mark(Profiler.Stage.SORT, top.size(), results.size());
+
+        return "PersonalizedSearchRecommendation result: " + results.stream()
+                .map(Video::getTitle).collect(Collectors.toList());
+    }
+
+    /**
+     * Streams the results of the search recommendation: the videos from the
+     * genre that weren't seen by the user, sorted by their average rating
+     * (and then by title). The videos are read lazily from the rating index
+     * of the genre, so only the results that are consumed are visited; the
+     * stream must be consumed before the database changes.
+     * @param limit maximum number of results (0 for all of them)
+     * @return the results; an empty stream, if the recommendation
+     *         cannot be applied
+     */
+    public Stream<Video> searchStream(final long limit) {
+        Repository repo = Repository.getInstance();
+        User user = repo.findUser(username);
+        VideoIndex index = repo.getRatingsByGenre(genre);
+
+        if (user == null || !user.getSubscriptionType().equals(Constants.PREMIUM)
+                || index == null) {
+            return Stream.empty();
+        }
 
-        return (validVideos.size() == 0) ? "SearchRecommendation cannot be applied!"
-                    : "SearchRecommendation result: " + validVideos.stream().map(Video::getTitle)
-                    .collect(Collectors.toList());
+        Stream<Video> results = StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                index.iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .filter(x -> !user.getHistory().containsKey(x.getTitle()));
+        return (limit > 0) ? results.limit(limit) : results;
     }
 }
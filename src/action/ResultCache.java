@@ -0,0 +1,235 @@
+package action;
+
+import repository.Repository;
+import repository.VersionCounter;
+import user.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache for the results of the read-only actions.
+ * <p>
+ * Every result is stored together with the versions of the repository
+ * counters it was computed from (the catalog version is always included)
+ * and, for the results computed for a user, with the version of that user;
+ * a result is returned only while none of those versions changed, so a view
+ * command invalidates the most viewed queries, but not the longest ones.
+ */
+public final class ResultCache {
+    /**
+     * Maximum number of query results kept in the cache
+     */
+    public static final int QUERY_CAPACITY = 1024;
+    /**
+     * Maximum number of recommendations kept in the cache
+     */
+    public static final int RECOMMENDATION_CAPACITY = 4096;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static ResultCache queryCache = null;
+    private static ResultCache recommendationCache = null;
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private boolean enabled = true;
+    private long hits;
+    private long misses;
+    private long invalidations;
+    private long evictions;
+
+    private ResultCache(final int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(capacity, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() > ResultCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return cache used for the query results (singleton)
+     */
+    public static ResultCache getQueryCache() {
+        if (queryCache == null) {
+            queryCache = new ResultCache(QUERY_CAPACITY);
+        }
+        return queryCache;
+    }
+
+    /**
+     * @return cache used for the recommendations (singleton)
+     */
+    public static ResultCache getRecommendationCache() {
+        if (recommendationCache == null) {
+            recommendationCache = new ResultCache(RECOMMENDATION_CAPACITY);
+        }
+        return recommendationCache;
+    }
+
+    /**
+     * Returns the cached result for the given key if it is still valid,
+     * otherwise computes the result and caches it.
+     * @param key normalized parameters of the query
+     * @param dependencies counters whose changes invalidate the result
+     * @param query computes the result when it isn't cached
+     * @return query result
+     */
+    public String computeIfAbsent(final String key, final Set<VersionCounter> dependencies,
+                                  final Supplier<String> query) {
+        return computeIfAbsent(key, null, dependencies, query);
+    }
+
+    /**
+     * Same as computeIfAbsent(key, dependencies, query), for a result
+     * that also depends on the data of a user.
+     * @param key normalized parameters of the action
+     * @param user user the result is computed for (null if there is none)
+     * @param dependencies counters whose changes invalidate the result
+     * @param query computes the result when it isn't cached
+     * @return action result
+     */
+    public String computeIfAbsent(final String key, final User user,
+                                  final Set<VersionCounter> dependencies,
+                                  final Supplier<String> query) {
+        if (!enabled) {
+            return query.get();
+        }
+
+        Repository repo = Repository.getInstance();
+        Entry entry = entries.get(key);
+
+        if (entry != null) {
+            if (entry.isValid(repo)) {
+                hits++;
+                return entry.result;
+            }
+            invalidations++;
+        }
+        misses++;
+
+        /**
+         * The versions are read before computing the result, so a result
+         * can only be older than the versions it is stored with.
+         */
+        Entry computed = new Entry(repo, user, dependencies);
+        computed.result = query.get();
+        if (computed.result != null) {
+            entries.put(key, computed);
+        }
+
+        return computed.result;
+    }
+
+    /**
+     * Removes every result from the cache and resets the statistics.
+     */
+    public void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        invalidations = 0;
+        evictions = 0;
+    }
+
+    /**
+     * @param enabled false to compute every query from scratch
+     *                (the cached results are dropped)
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            entries.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of cached results found out of date
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return number of results removed because the cache was full
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{"
+                + "size=" + entries.size()
+                + ", hits=" + hits
+                + ", misses=" + misses
+                + ", invalidations=" + invalidations
+                + ", evictions=" + evictions
+                + '}';
+    }
+
+    /**
+     * Cached result and the versions it was computed from.
+     */
+    private static final class Entry {
+        private final VersionCounter[] counters;
+        private final long[] versions;
+        private final User user;
+        private final long userVersion;
+        private String result;
+
+        private Entry(final Repository repo, final User user,
+                      final Set<VersionCounter> dependencies) {
+            this.user = user;
+            this.userVersion = (user != null) ? user.getVersion() : 0;
+
+            counters = new VersionCounter[dependencies.size() + 1];
+            versions = new long[counters.length];
+
+            counters[0] = VersionCounter.CATALOG;
+            int i = 1;
+            for (VersionCounter counter : dependencies) {
+                counters[i++] = counter;
+            }
+            for (i = 0; i < counters.length; i++) {
+                versions[i] = repo.getVersion(counters[i]);
+            }
+        }
+
+        private boolean isValid(final Repository repo) {
+            if (user != null && user.getVersion() != userVersion) {
+                return false;
+            }
+            for (int i = 0; i < counters.length; i++) {
+                if (repo.getVersion(counters[i]) != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
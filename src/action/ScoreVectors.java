@@ -0,0 +1,173 @@
+package action;
+
+import actor.Actor;
+import entertainment.Video;
+import repository.Repository;
+import repository.VersionCounter;
+import user.User;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Scores shared by the read-only actions of a run: the sequence of
+ * queries and recommendations between two commands.
+ * <p>
+ * Inside a run the database doesn't change, so every score vector (the
+ * number of favorites lists of every title, the average rating of every
+ * actor) is computed by the first action that needs it and then reused by
+ * the following ones, even if they differ in number, order or filters.
+ * The runs are delimited by ActionCenter; outside a run, the vectors are
+ * computed for every request. A vector also remembers the versions of the
+ * data it was computed from, so a change that doesn't come from a command
+ * (e.g. loading a new database) can't make it stale.
+ * <p>
+ * The number of views of every video isn't needed here: it is kept up to
+ * date by the repository indexes on every view.
+ */
+public final class ScoreVectors {
+    private static ScoreVectors instance = null;
+
+    private boolean inRun = false;
+    private Vector<Map<String, Integer>> favorites;
+    private Vector<Map<Actor, Double>> actorAverages;
+    private long computed;
+    private long reused;
+
+    private ScoreVectors() {
+    }
+
+    /**
+     * @return the shared vectors (singleton)
+     */
+    public static ScoreVectors getInstance() {
+        if (instance == null) {
+            instance = new ScoreVectors();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a run of read-only actions (does nothing if a run is open).
+     */
+    public void beginRun() {
+        inRun = true;
+    }
+
+    /**
+     * Ends the current run; the vectors computed in it are released.
+     */
+    public void endRun() {
+        inRun = false;
+        favorites = null;
+        actorAverages = null;
+    }
+
+    public boolean isInRun() {
+        return inRun;
+    }
+
+    /**
+     * @return number of favorites lists that contain every title
+     *         (the titles that aren't in any list are missing)
+     */
+    public Map<String, Integer> getFavorites() {
+        Repository repo = Repository.getInstance();
+        long[] versions = versions(repo, VersionCounter.FAVORITES);
+        if (favorites != null && favorites.isValid(versions)) {
+            reused++;
+            return favorites.scores;
+        }
+
+        Map<String, Integer> scores = new HashMap<>();
+        for (User user : repo.getUsers()) {
+            /**
+             * A user counts once for a title, as in Utils.favoriteApparitions().
+             */
+            for (String title : new HashSet<>(user.getFavoriteMovies())) {
+                scores.merge(title, 1, Integer::sum);
+            }
+        }
+        computed++;
+        if (inRun) {
+            favorites = new Vector<>(scores, versions);
+        }
+        return scores;
+    }
+
+    /**
+     * @param title name of a video
+     * @return number of favorites lists that contain the video
+     */
+    public int getFavorites(final String title) {
+        return getFavorites().getOrDefault(title, 0);
+    }
+
+    /**
+     * @return average rating of every actor, computed over the rated videos
+     *         from the filmography of the actor that exist in the database (0 if none)
+     */
+    public Map<Actor, Double> getActorAverages() {
+        Repository repo = Repository.getInstance();
+        long[] versions = versions(repo, VersionCounter.RATINGS);
+        if (actorAverages != null && actorAverages.isValid(versions)) {
+            reused++;
+            return actorAverages.scores;
+        }
+
+        Map<Actor, Double> scores = new HashMap<>();
+        for (Actor actor : repo.getActors()) {
+            double sum = 0.0;
+            int rated = 0;
+            for (String title : actor.getFilmography()) {
+                Video video = repo.findVideo(title);
+                double rating = (video != null) ? video.getAverageRating() : 0.0;
+                if (Double.compare(rating, 0.0) != 0) {
+                    sum += rating;
+                    rated++;
+                }
+            }
+            scores.put(actor, (rated != 0) ? sum / rated : 0.0);
+        }
+        computed++;
+        if (inRun) {
+            actorAverages = new Vector<>(scores, versions);
+        }
+        return scores;
+    }
+
+    /**
+     * @return number of requests answered with a vector from the current run
+     */
+    public long getReused() {
+        return reused;
+    }
+
+    private static long[] versions(final Repository repo, final VersionCounter counter) {
+        return new long[] {repo.getVersion(VersionCounter.CATALOG), repo.getVersion(counter)};
+    }
+
+    @Override
+    public String toString() {
+        return "vectors computed=" + computed + " reused=" + reused;
+    }
+
+    /**
+     * A score vector, with the versions of the data it was computed from.
+     */
+    private static final class Vector<T> {
+        private final T scores;
+        private final long[] versions;
+
+        private Vector(final T scores, final long[] versions) {
+            this.scores = scores;
+            this.versions = versions;
+        }
+
+        private boolean isValid(final long[] current) {
+            return Arrays.equals(versions, current);
+        }
+    }
+}
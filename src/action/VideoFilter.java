@@ -0,0 +1,140 @@
+package action;
+
+import common.Constants;
+import entertainment.Video;
+import repository.CatalogIndexes;
+import utils.Utils;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Year/genre filters of a query, compiled once per query.
+ * <p>
+ * The raw filters are parsed when the filter is built, so testing a video
+ * is an int comparison for the year and a bit test for the genre (the list
+ * of genres is only searched for the videos that pass the bit test, since
+ * the genre names are matched exactly). When both filters are present, the
+ * one that rejects more videos is tested first.
+ */
+public final class VideoFilter implements Predicate<Video> {
+    /**
+     * How the filter is evaluated
+     */
+    private enum Mode {
+        MATCH_ALL, YEAR, GENRE, YEAR_THEN_GENRE, GENRE_THEN_YEAR
+    }
+
+    private final Mode mode;
+    private final int year;
+    private final String genre;
+    private final int genreBit;
+
+    private VideoFilter(final Mode mode, final int year, final String genre) {
+        this.mode = mode;
+        this.year = year;
+        this.genre = genre;
+        this.genreBit = (genre != null) ? Utils.genresToMask(List.of(genre)) : 0;
+    }
+
+    /**
+     * Compiles the raw filters of a query.
+     * @param filters list of filters (year on YEAR_POS, genre on GENRE_POS)
+     * @param statistics counts of the filtered videos, used to order the
+     *                   tests by selectivity (null if not available)
+     * @return the compiled filter
+     */
+    public static VideoFilter compile(final List<List<String>> filters,
+                                      final CatalogIndexes statistics) {
+        String yearFilter = first(filters.get(Constants.YEAR_POS));
+        String genreFilter = first(filters.get(Constants.GENRE_POS));
+        int year = (yearFilter != null) ? Integer.parseInt(yearFilter) : 0;
+
+        if (yearFilter == null) {
+            return new VideoFilter((genreFilter == null) ? Mode.MATCH_ALL : Mode.GENRE,
+                    year, genreFilter);
+        }
+        if (genreFilter == null) {
+            return new VideoFilter(Mode.YEAR, year, null);
+        }
+
+        /**
+         * The year comparison is cheaper, so it goes first unless
+         * the genre is known to match fewer videos.
+         */
+        boolean genreFirst = statistics != null
+                && statistics.countByGenre(genreFilter) < statistics.countByYear(year);
+        return new VideoFilter(genreFirst ? Mode.GENRE_THEN_YEAR : Mode.YEAR_THEN_GENRE,
+                year, genreFilter);
+    }
+
+    @Override
+    public boolean test(final Video video) {
+        return switch (mode) {
+            case MATCH_ALL -> true;
+            case YEAR -> video.getYear() == year;
+            case GENRE -> hasGenre(video);
+            case YEAR_THEN_GENRE -> video.getYear() == year && hasGenre(video);
+            case GENRE_THEN_YEAR -> hasGenre(video) && video.getYear() == year;
+        };
+    }
+
+    /**
+     * @return true if the filter requires a release year
+     */
+    public boolean hasYear() {
+        return mode != Mode.MATCH_ALL && mode != Mode.GENRE;
+    }
+
+    /**
+     * @return the required release year (valid only if hasYear())
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * @return the required genre; null, if the genre isn't filtered
+     */
+    public String getGenre() {
+        return genre;
+    }
+
+    /**
+     * @return true if every video passes the filter
+     */
+    public boolean matchesAll() {
+        return mode == Mode.MATCH_ALL;
+    }
+
+    private boolean hasGenre(final Video video) {
+        /**
+         * A genre unknown to the Genre enum has no bit, so it
+         * can only be checked by searching the list.
+         */
+        if (genreBit != 0 && (video.getGenresMask() & genreBit) == 0) {
+            return false;
+        }
+        return video.getGenres().contains(genre);
+    }
+
+    /**
+     * @param filter a year or genre filter
+     * @return the only value of the filter that is used; null, if the filter
+     *         is missing
+     */
+    static String first(final List<String> filter) {
+        return (filter != null) ? filter.get(0) : null;
+    }
+
+    @Override
+    public String toString() {
+        return switch (mode) {
+            case MATCH_ALL -> "all";
+            case YEAR -> "year=" + year;
+            case GENRE -> "genre=" + genre;
+            case YEAR_THEN_GENRE -> "year=" + year + " and genre=" + genre;
+            case GENRE_THEN_YEAR -> "genre=" + genre + " and year=" + year;
+        };
+    }
+}
@@ -8,6 +8,14 @@ public final class Actor {
     private String careerDescription;
     private ArrayList<String> filmography;
     private Map<ActorsAwards, Integer> awards;
+    /**
+     * Bit i is set if the actor won the award with ordinal i
+     */
+    private final int awardsMask;
+    /**
+     * Total number of awards won
+     */
+    private final int totalAwards;
 
     public Actor(final String name, final String careerDescription,
                  final ArrayList<String> filmography,
@@ -16,6 +24,17 @@ public final class Actor {
         this.careerDescription = careerDescription;
         this.filmography = filmography;
         this.awards = awards;
+
+        int mask = 0;
+        int total = 0;
+        for (Map.Entry<ActorsAwards, Integer> award : awards.entrySet()) {
+            if (award.getKey() != null) {
+                mask |= 1 << award.getKey().ordinal();
+            }
+            total += award.getValue();
+        }
+        this.awardsMask = mask;
+        this.totalAwards = total;
     }
 
     public String getName() {
@@ -38,6 +57,14 @@ public final class Actor {
         return awards;
     }
 
+    public int getAwardsMask() {
+        return awardsMask;
+    }
+
+    public int getTotalAwards() {
+        return totalAwards;
+    }
+
     public String getCareerDescription() {
         return careerDescription;
     }
@@ -0,0 +1,62 @@
+package benchmark;
+
+import common.Constants;
+import fileio.ActionInputData;
+import fileio.Input;
+import fileio.InputLoader;
+import repository.Repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers shared by the benchmarks from this package.
+ */
+public final class Benchmarks {
+    /**
+     * Test used when no input file is given in the command line
+     */
+    public static final String DEFAULT_TEST = Constants.TESTS_PATH + "large_test_no_1.json";
+
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * for coding style
+     */
+    private Benchmarks() {
+    }
+
+    /**
+     * Loads a test file in the Repository.
+     * @param path path to the test file (null for the default test)
+     * @return the actions from the test file
+     */
+    public static List<ActionInputData> load(final String path) {
+        Input input = new InputLoader((path != null) ? path : DEFAULT_TEST).readData();
+        Repository.getInstance(input);
+        return input.getCommands();
+    }
+
+    /**
+     * @param actions list of actions
+     * @param actionType type of the actions that are kept
+     * @return the actions that have the given type
+     */
+    public static List<ActionInputData> ofType(final List<ActionInputData> actions,
+                                               final String actionType) {
+        return actions.stream().filter(x -> x.getActionType().equals(actionType))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Prints the total and the average time of a measured run.
+     * @param name name of the run
+     * @param operations number of operations in the run
+     * @param nanos duration of the run
+     */
+    public static void report(final String name, final long operations, final long nanos) {
+        System.out.printf("%-40s %9d ops %10.2f ms %10.3f us/op%n", name, operations,
+                nanos / NANOS_PER_MILLI, nanos / NANOS_PER_MICRO / Math.max(operations, 1));
+    }
+}
@@ -0,0 +1,126 @@
+package benchmark;
+
+import action.ActionCenter;
+import action.BulkRecommendations;
+import action.Recommendation;
+import action.ResultCache;
+import common.Constants;
+import fileio.ActionInputData;
+import fileio.Input;
+import fileio.InputLoader;
+import fileio.UserInputData;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import repository.Repository;
+import user.User;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the lines written by BulkRecommendations against the messages of
+ * Recommendation.apply() for every user of a test file (after its actions),
+ * then loads the catalog of the test with many synthetic users and compares
+ * the time of a batch (sequential and on the common pool) with the time of
+ * calling apply() three times for every user.
+ */
+public final class BulkRecommendationBenchmark {
+    private static final int DEFAULT_USERS = 100_000;
+    private static final int DEFAULT_HISTORY = 8;
+    private static final List<String> TYPES = List.of(Constants.STANDARD,
+            Constants.BEST_UNSEEN, Constants.FAVORITE);
+    private static final String BASIC = "BASIC";
+    private static final long SEED = 23;
+
+    /**
+     * for coding style
+     */
+    private BulkRecommendationBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [synthetic users] [titles watched by every user]
+     * @throws IOException never (the output is written in memory)
+     * @throws ParseException if a written line is not valid JSON
+     */
+    public static void main(final String[] args) throws IOException, ParseException {
+        String path = (args.length > 0) ? args[0] : Benchmarks.DEFAULT_TEST;
+        int userCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_USERS;
+        int historySize = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_HISTORY;
+
+        List<ActionInputData> actions = Benchmarks.load(path);
+        for (ActionInputData data : actions) {
+            ActionCenter.apply(ActionCenter.createAction(data));
+        }
+        ResultCache.getRecommendationCache().setEnabled(false);
+        StringWriter written = new StringWriter();
+        new BulkRecommendations().run(written);
+
+        boolean identical = true;
+        JSONParser parser = new JSONParser();
+        String[] lines = written.toString().split("\n");
+        List<User> users = Repository.getInstance().getUsers();
+        for (int i = 0; i < users.size(); i++) {
+            JSONObject line = (JSONObject) parser.parse(lines[i]);
+            for (String type : TYPES) {
+                identical &= line.get(type).equals(new Recommendation(0,
+                        users.get(i).getUsername(), type, null).apply());
+            }
+        }
+        System.out.println(users.size() + " users, lines identical to apply(): " + identical);
+
+        Input test = new InputLoader(path).readData();
+        List<String> catalog = Stream.concat(test.getMovies().stream().map(x -> x.getTitle()),
+                test.getSerials().stream().map(x -> x.getTitle())).collect(Collectors.toList());
+        Random random = new Random(SEED);
+        List<UserInputData> synthetic = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            Map<String, Integer> history = new HashMap<>();
+            List<String> favorites = new ArrayList<>();
+            while (history.size() < Math.min(historySize, catalog.size() - 1)) {
+                String title = catalog.get(random.nextInt(catalog.size()));
+                if (history.put(title, 1) == null && random.nextBoolean()) {
+                    favorites.add(title);
+                }
+            }
+            synthetic.add(new UserInputData("user" + i, random.nextBoolean()
+                    ? Constants.PREMIUM : BASIC, history, new ArrayList<>(favorites)));
+        }
+        Repository.getInstance(new Input(test.getActors(), synthetic, List.of(),
+                test.getMovies(), test.getSerials()));
+        users = Repository.getInstance().getUsers();
+
+        long start = System.nanoTime();
+        for (User user : users) {
+            for (String type : TYPES) {
+                new Recommendation(0, user.getUsername(), type, null).apply();
+            }
+        }
+        Benchmarks.report("apply() per user and type", users.size(), System.nanoTime() - start);
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        /**
+         * Warm-up, so the first batch is not measured while interpreted.
+         */
+        new BulkRecommendations().run(users, Writer.nullWriter(), single);
+        start = System.nanoTime();
+        new BulkRecommendations().run(users, Writer.nullWriter(), single);
+        Benchmarks.report("batch, 1 thread", users.size(), System.nanoTime() - start);
+        single.shutdown();
+
+        start = System.nanoTime();
+        new BulkRecommendations().run(Writer.nullWriter());
+        Benchmarks.report("batch, " + ForkJoinPool.commonPool().getParallelism()
+                + " threads", users.size(), System.nanoTime() - start);
+    }
+}
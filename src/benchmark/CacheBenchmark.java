@@ -0,0 +1,70 @@
+package benchmark;
+
+import action.Action;
+import action.ActionCenter;
+import action.ResultCache;
+import common.Constants;
+import fileio.ActionInputData;
+
+import java.util.List;
+
+/**
+ * Measures the queries and the recommendations of a test file with and
+ * without the result caches, and the cost of a run where the commands
+ * invalidate the cached results.
+ */
+public final class CacheBenchmark {
+    private static final int DEFAULT_ROUNDS = 1000;
+
+    /**
+     * for coding style
+     */
+    private CacheBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [rounds]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : null;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        List<ActionInputData> actions = Benchmarks.load(path);
+        measure("queries", Benchmarks.ofType(actions, Constants.QUERY),
+                ResultCache.getQueryCache(), rounds);
+        measure("recommendations", Benchmarks.ofType(actions, Constants.RECOMMENDATION),
+                ResultCache.getRecommendationCache(), rounds);
+
+        ResultCache.getQueryCache().clear();
+        ResultCache.getRecommendationCache().clear();
+        Benchmarks.report("all actions, caches enabled", (long) rounds * actions.size(),
+                run(actions, rounds));
+        System.out.println("queries: " + ResultCache.getQueryCache());
+        System.out.println("recommendations: " + ResultCache.getRecommendationCache());
+    }
+
+    private static void measure(final String name, final List<ActionInputData> actions,
+                                final ResultCache cache, final int rounds) {
+        long operations = (long) rounds * actions.size();
+
+        cache.setEnabled(false);
+        Benchmarks.report(name + ", cache disabled", operations, run(actions, rounds));
+
+        cache.setEnabled(true);
+        cache.clear();
+        run(actions, 1);
+        Benchmarks.report(name + ", repeated (cache hits)", operations, run(actions, rounds));
+        System.out.println(cache);
+    }
+
+    private static long run(final List<ActionInputData> actions, final int rounds) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (ActionInputData data : actions) {
+                Action action = ActionCenter.createAction(data);
+                action.apply();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
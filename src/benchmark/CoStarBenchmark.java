@@ -0,0 +1,146 @@
+package benchmark;
+
+import entertainment.Movie;
+import entertainment.Video;
+import repository.CoStarGraph;
+import repository.Repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Builds the co-star graph of the test file and of a big synthetic catalog
+ * (actors grouped in communities that often play together), reports its
+ * memory per edge and the latency of the co-star and degrees of separation
+ * lookups, and checks the bidirectional search against a plain
+ * breadth-first search on a smaller catalog.
+ */
+public final class CoStarBenchmark {
+    private static final int DEFAULT_ACTORS = 300_000;
+    private static final int COMMUNITY = 50;
+    private static final int TITLES_PER_ACTOR = 3;
+    private static final int CAST_SIZE = 8;
+    private static final int OUTSIDERS = 1;
+    private static final int CHECKED_ACTORS = 20_000;
+    private static final int CHECKS = 50;
+    private static final int LOOKUPS = 1000;
+    private static final int CO_STARS = 10;
+    private static final long SEED = 3;
+
+    /**
+     * for coding style
+     */
+    private CoStarBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [synthetic actors]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : null;
+        int actorCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ACTORS;
+
+        Benchmarks.load(path);
+        describe("test catalog", Repository.getInstance().getCoStars());
+
+        CoStarGraph small = new CoStarGraph(List.of(), catalog(CHECKED_ACTORS));
+        Random random = new Random(SEED);
+        boolean shortest = true;
+        for (int i = 0; i < CHECKS; i++) {
+            String from = "actor" + random.nextInt(CHECKED_ACTORS);
+            String to = "actor" + random.nextInt(CHECKED_ACTORS);
+            List<String> chain = small.shortestPath(from, to);
+            shortest &= chain.size() == bfsLength(small, from, to) && isChain(small, chain);
+        }
+        System.out.println("bidirectional search finds shortest chains: " + shortest);
+
+        long start = System.nanoTime();
+        CoStarGraph graph = new CoStarGraph(List.of(), catalog(actorCount));
+        Benchmarks.report("build, " + actorCount + " actors", 1, System.nanoTime() - start);
+        describe("synthetic catalog", graph);
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            graph.coStars("actor" + random.nextInt(actorCount), CO_STARS, false);
+        }
+        Benchmarks.report("co_stars", LOOKUPS, System.nanoTime() - start);
+
+        int hops = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            hops += graph.shortestPath("actor" + random.nextInt(actorCount),
+                    "actor" + random.nextInt(actorCount)).size() - 1;
+        }
+        Benchmarks.report("degrees_of_separation", LOOKUPS, System.nanoTime() - start);
+        System.out.printf("average degrees of separation: %.2f%n", (double) hops / LOOKUPS);
+    }
+
+    /**
+     * Every title has most of its cast from one community
+     * and the rest from the whole pool of actors.
+     */
+    private static List<Video> catalog(final int actorCount) {
+        Random random = new Random(SEED);
+        List<Video> videos = new ArrayList<>();
+        int titles = actorCount * TITLES_PER_ACTOR / CAST_SIZE;
+        for (int i = 0; i < titles; i++) {
+            int community = random.nextInt(Math.max(1, actorCount / COMMUNITY));
+            Set<String> cast = new HashSet<>();
+            while (cast.size() < CAST_SIZE - OUTSIDERS) {
+                cast.add("actor" + Math.min(actorCount - 1,
+                        community * COMMUNITY + random.nextInt(COMMUNITY)));
+            }
+            while (cast.size() < CAST_SIZE) {
+                cast.add("actor" + random.nextInt(actorCount));
+            }
+            videos.add(new Movie("title" + i, new ArrayList<>(cast), new ArrayList<>(), 0, 0));
+        }
+        return videos;
+    }
+
+    private static void describe(final String name, final CoStarGraph graph) {
+        System.out.printf("%s: %d actors, %d co-star links, %d bytes, %.1f bytes/link%n", name,
+                graph.size(), graph.edges(), graph.memoryBytes(),
+                (double) graph.memoryBytes() / Math.max(1, graph.edges()));
+    }
+
+    /**
+     * @return number of actors on a shortest chain, found by a plain
+     *         breadth-first search (0 if the actors aren't connected)
+     */
+    private static int bfsLength(final CoStarGraph graph, final String from, final String to) {
+        Map<String, Integer> depths = new HashMap<>();
+        Deque<String> queue = new ArrayDeque<>();
+        depths.put(from, 0);
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            String actor = queue.poll();
+            if (actor.equals(to)) {
+                return depths.get(actor) + 1;
+            }
+            for (String coStar : graph.coStars(actor, Integer.MAX_VALUE, true)) {
+                if (!depths.containsKey(coStar)) {
+                    depths.put(coStar, depths.get(actor) + 1);
+                    queue.add(coStar);
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isChain(final CoStarGraph graph, final List<String> chain) {
+        for (int i = 1; i < chain.size(); i++) {
+            if (graph.sharedTitles(chain.get(i - 1), chain.get(i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package benchmark;
+
+import action.ActionCenter;
+import action.Recommendation;
+import action.ResultCache;
+import common.Constants;
+import fileio.ActionInputData;
+import fileio.Input;
+import fileio.InputLoader;
+import fileio.UserInputData;
+import repository.CoViewMatrix;
+import repository.Repository;
+import user.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the co-view matrix kept up to date by the views of a test file
+ * against a matrix rebuilt from the final histories, then loads the catalog
+ * of the test with many synthetic users and measures the time needed to
+ * build the matrix and to answer "similar_users_watched" recommendations.
+ */
+public final class CoViewBenchmark {
+    private static final int DEFAULT_USERS = 200_000;
+    private static final int DEFAULT_HISTORY = 8;
+    private static final int RECOMMENDATIONS = 10_000;
+    private static final long SEED = 42;
+
+    /**
+     * for coding style
+     */
+    private CoViewBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [synthetic users] [titles watched by every user]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : Benchmarks.DEFAULT_TEST;
+        int userCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_USERS;
+        int historySize = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_HISTORY;
+
+        for (ActionInputData data : Benchmarks.load(path)) {
+            ActionCenter.apply(ActionCenter.createAction(data));
+        }
+        Repository repo = Repository.getInstance();
+        CoViewMatrix rebuilt = new CoViewMatrix(repo.getUsers());
+        boolean identical = true;
+        for (String title : titles(repo)) {
+            identical &= repo.getCoViews().getNeighbours(title)
+                    .equals(rebuilt.getNeighbours(title));
+            for (String other : rebuilt.getNeighbours(title)) {
+                identical &= repo.getCoViews().getCount(title, other)
+                        == rebuilt.getCount(title, other);
+            }
+        }
+        System.out.println("incremental matrix identical to the rebuilt one: " + identical);
+
+        Input test = new InputLoader(path).readData();
+        List<String> catalog = Stream.concat(test.getMovies().stream().map(x -> x.getTitle()),
+                test.getSerials().stream().map(x -> x.getTitle())).collect(Collectors.toList());
+        Random random = new Random(SEED);
+        List<UserInputData> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            Map<String, Integer> history = new HashMap<>();
+            while (history.size() < Math.min(historySize, catalog.size() - 1)) {
+                history.put(catalog.get(random.nextInt(catalog.size())), 1);
+            }
+            users.add(new UserInputData("user" + i, Constants.PREMIUM, history,
+                    new ArrayList<>()));
+        }
+
+        long start = System.nanoTime();
+        Repository.getInstance(new Input(test.getActors(), users, List.of(), test.getMovies(),
+                test.getSerials()));
+        Benchmarks.report("load with " + userCount + " users", 1, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        new CoViewMatrix(Repository.getInstance().getUsers());
+        Benchmarks.report("co-view matrix build", 1, System.nanoTime() - start);
+
+        ResultCache.getRecommendationCache().setEnabled(false);
+        start = System.nanoTime();
+        for (int i = 0; i < RECOMMENDATIONS; i++) {
+            new Recommendation(i, "user" + random.nextInt(userCount),
+                    Constants.SIMILAR_USERS_WATCHED, null).apply();
+        }
+        Benchmarks.report("similar_users_watched", RECOMMENDATIONS, System.nanoTime() - start);
+    }
+
+    /**
+     * @return every title from the users' histories
+     */
+    private static Set<String> titles(final Repository repo) {
+        Set<String> titles = new HashSet<>();
+        for (User user : repo.getUsers()) {
+            titles.addAll(user.getHistory().keySet());
+        }
+        return titles;
+    }
+}
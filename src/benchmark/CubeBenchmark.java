@@ -0,0 +1,124 @@
+package benchmark;
+
+import action.ActionCenter;
+import entertainment.Genre;
+import entertainment.Movie;
+import entertainment.Season;
+import entertainment.Serial;
+import entertainment.Video;
+import fileio.ActionInputData;
+import repository.AggregateCube;
+import repository.Repository;
+import user.User;
+import utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the actions of a test file and checks every cell of the aggregate
+ * cube (and the roll-ups over the genres and over the years) against the
+ * numbers computed by scanning the videos and the users; then compares the
+ * time of a group-by read from the cube with the time of the scan.
+ */
+public final class CubeBenchmark {
+    private static final int DEFAULT_ROUNDS = 2000;
+    private static final double TOLERANCE = 1e-9;
+    private static final int MEASURES = 5;
+
+    /**
+     * for coding style
+     */
+    private CubeBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [rounds]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : Benchmarks.DEFAULT_TEST;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        for (ActionInputData data : Benchmarks.load(path)) {
+            ActionCenter.apply(ActionCenter.createAction(data));
+        }
+        Repository repo = Repository.getInstance();
+        AggregateCube cube = repo.getCube();
+
+        List<Genre> genres = new ArrayList<>(List.of(Genre.values()));
+        genres.add(null);
+        List<Integer> years = new ArrayList<>(cube.getYears());
+        years.add(null);
+
+        boolean identical = true;
+        for (boolean movies : new boolean[] {true, false}) {
+            for (Genre genre : genres) {
+                for (Integer year : years) {
+                    identical &= same(cube.get(movies, genre, year),
+                            scan(repo, movies, genre, year));
+                }
+            }
+        }
+        System.out.println("cube cells equal to the scans: " + identical);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Genre genre : Genre.values()) {
+                cube.get(true, genre, null);
+            }
+        }
+        Benchmarks.report("group by genre, cube", rounds, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Genre genre : Genre.values()) {
+                scan(repo, true, genre, null);
+            }
+        }
+        Benchmarks.report("group by genre, scan", rounds, System.nanoTime() - start);
+    }
+
+    /**
+     * @return {videos, views, ratings, sum of grades, favorites} of a group
+     */
+    private static double[] scan(final Repository repo, final boolean movies, final Genre genre,
+                                 final Integer year) {
+        double[] result = new double[MEASURES];
+        for (Video video : repo.getVideos()) {
+            if ((video instanceof Movie) != movies || (year != null && video.getYear() != year)
+                    || (genre != null && video.getGenres().stream()
+                            .noneMatch(x -> Utils.stringToGenre(x) == genre))) {
+                continue;
+            }
+
+            List<Double> ratings = new ArrayList<>();
+            if (video instanceof Movie) {
+                ratings.addAll(((Movie) video).getRatings());
+            } else {
+                for (Season season : ((Serial) video).getSeasons()) {
+                    ratings.addAll(season.getRatings());
+                }
+            }
+            int index = 0;
+            result[index++]++;
+            result[index++] += repo.getViews(video.getTitle());
+            result[index++] += ratings.size();
+            result[index++] += ratings.stream().mapToDouble(x -> x).sum();
+            for (User user : repo.getUsers()) {
+                if (user.getFavoriteMovies().contains(video.getTitle())) {
+                    result[index]++;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean same(final AggregateCube.Cell cell, final double[] scan) {
+        int index = 0;
+        return cell.getVideos() == scan[index++] && cell.getViews() == scan[index++]
+                && cell.getRatings() == scan[index++]
+                && Math.abs(cell.getAverageGrade() * cell.getRatings() - scan[index++])
+                        < TOLERANCE
+                && cell.getFavorites() == scan[index];
+    }
+}
@@ -0,0 +1,122 @@
+package benchmark;
+
+import action.ActionCenter;
+import entertainment.Movie;
+import entertainment.Season;
+import entertainment.Serial;
+import entertainment.Video;
+import fileio.ActionInputData;
+import repository.RatingDistributions;
+import repository.RatingHistogram;
+import repository.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Applies the actions of a test file and checks the median, the p90 and the
+ * variance kept by the rating histograms against the values computed from
+ * the raw lists of ratings; then compares the cost of a median read from a
+ * histogram with the cost of sorting the raw ratings, for a video with many
+ * ratings.
+ */
+public final class DistributionBenchmark {
+    private static final int DEFAULT_RATINGS = 1_000_000;
+    private static final int READS = 1000;
+    private static final int MAX_GRADE = 10;
+    private static final double MEDIAN = 0.5;
+    private static final double P90 = 0.9;
+    private static final double TOLERANCE = 1e-9;
+    private static final long SEED = 5;
+
+    /**
+     * for coding style
+     */
+    private DistributionBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [ratings]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : Benchmarks.DEFAULT_TEST;
+        int ratingCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_RATINGS;
+
+        for (ActionInputData data : Benchmarks.load(path)) {
+            ActionCenter.apply(ActionCenter.createAction(data));
+        }
+        Repository repo = Repository.getInstance();
+        RatingDistributions distributions = repo.getDistributions();
+        boolean identical = true;
+        for (Video video : repo.getVideos()) {
+            identical &= same(distributions.getHistogram(video), ratings(video));
+            if (video instanceof Serial) {
+                List<Season> seasons = ((Serial) video).getSeasons();
+                for (int i = 0; i < seasons.size(); i++) {
+                    identical &= same(distributions.getHistogram((Serial) video, i + 1),
+                            seasons.get(i).getRatings());
+                }
+            }
+        }
+        System.out.println("histogram statistics equal to the raw ratings: " + identical);
+
+        Random random = new Random(SEED);
+        RatingHistogram histogram = new RatingHistogram();
+        List<Double> raw = new ArrayList<>(ratingCount);
+        for (int i = 0; i < ratingCount; i++) {
+            double grade = 1 + random.nextInt(MAX_GRADE);
+            histogram.add(grade);
+            raw.add(grade);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            histogram.quantile(MEDIAN);
+        }
+        Benchmarks.report("median from histogram, " + ratingCount + " ratings", READS,
+                System.nanoTime() - start);
+
+        start = System.nanoTime();
+        quantile(raw, MEDIAN);
+        Benchmarks.report("median from sorted ratings", 1, System.nanoTime() - start);
+    }
+
+    private static List<Double> ratings(final Video video) {
+        if (video instanceof Movie) {
+            return ((Movie) video).getRatings();
+        }
+        List<Double> ratings = new ArrayList<>();
+        for (Season season : ((Serial) video).getSeasons()) {
+            ratings.addAll(season.getRatings());
+        }
+        return ratings;
+    }
+
+    private static boolean same(final RatingHistogram histogram, final List<Double> ratings) {
+        if (histogram.getCount() != ratings.size()) {
+            return false;
+        }
+        if (ratings.isEmpty()) {
+            return true;
+        }
+
+        double mean = ratings.stream().mapToDouble(x -> x).average().orElse(0);
+        double variance = ratings.stream().mapToDouble(x -> (x - mean) * (x - mean))
+                .average().orElse(0);
+        return histogram.quantile(MEDIAN) == quantile(ratings, MEDIAN)
+                && histogram.quantile(P90) == quantile(ratings, P90)
+                && Math.abs(histogram.variance() - variance) < TOLERANCE;
+    }
+
+    /**
+     * Nearest rank quantile of the raw ratings.
+     */
+    private static double quantile(final List<Double> ratings, final double fraction) {
+        List<Double> sorted = new ArrayList<>(ratings);
+        Collections.sort(sorted);
+        int rank = Math.max(1, (int) Math.ceil(fraction * sorted.size()));
+        return sorted.get(rank - 1);
+    }
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import action.Query;
+import action.QueryPage;
+import action.ResultCache;
+import common.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the whole result of the paginated queries page by page, first with
+ * continuation cursors and then by rerunning the query with a bigger number
+ * for every page (keeping only the last page), and checks that the pages
+ * read with cursors add up to the complete result. The queries cover the
+ * three kinds of pages: sorted index, bounded heap over the scores and rank
+ * in the whole result.
+ */
+public final class PaginationBenchmark {
+    private static final int DEFAULT_PAGE = 2;
+    private static final int DEFAULT_ROUNDS = 2000;
+    private static final int FILTERS = 4;
+
+    /**
+     * for coding style
+     */
+    private PaginationBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [page size] [rounds]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : null;
+        int pageSize = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PAGE;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+
+        Benchmarks.load(path);
+        ResultCache.getQueryCache().setEnabled(false);
+        List<List<String>> filters = new ArrayList<>(Collections.nCopies(FILTERS, null));
+
+        String[][] queries = {
+            {Constants.MOVIES, Constants.RATINGS}, {Constants.MOVIES, Constants.LONGEST},
+            {Constants.SHOWS, Constants.LONGEST}, {Constants.MOVIES, Constants.MOST_VIEWED},
+            {Constants.USERS, Constants.NUM_RATINGS}, {Constants.MOVIES, Constants.FAVORITE},
+            {Constants.SHOWS, Constants.FAVORITE}, {Constants.MOVIES, Constants.MEDIAN_RATING},
+            {Constants.MOVIES, Constants.DISTINCT_VIEWERS}, {Constants.ACTORS, Constants.AVERAGE},
+            {Constants.ACTORS, Constants.AWARDS}, {Constants.MOVIES, Constants.GENRE_STATS},
+        };
+        for (String[] query : queries) {
+            for (String sortType : List.of(Constants.ASC, Constants.DESC)) {
+                String expected = new Query(0, query[0], Integer.MAX_VALUE, filters, sortType,
+                        query[1]).apply();
+
+                List<String> paged = new ArrayList<>();
+                int pages = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    paged.clear();
+                    pages = 0;
+                    String cursor = null;
+                    do {
+                        QueryPage page = new Query(0, query[0], pageSize, filters, sortType,
+                                query[1]).page(cursor);
+                        paged.addAll(page.getResults());
+                        cursor = page.getCursor();
+                        pages++;
+                    } while (cursor != null);
+                }
+                String name = query[0] + " " + query[1] + " " + sortType;
+                Benchmarks.report(name + ", cursors", (long) rounds * pages,
+                        System.nanoTime() - start);
+
+                start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    for (int page = 1; page <= pages; page++) {
+                        new Query(0, query[0], page * pageSize, filters, sortType, query[1])
+                                .apply();
+                    }
+                }
+                Benchmarks.report(name + ", rerun with offset", (long) rounds * pages,
+                        System.nanoTime() - start);
+
+                System.out.println("pages identical to the full result: "
+                        + expected.equals("Query result: " + paged));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import action.ActionCenter;
+import action.Profiler;
+import action.ResultCache;
+import fileio.ActionInputData;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies the actions of a test file with the profiler enabled and prints
+ * the profile of every query and recommendation, followed by the time spent
+ * in every stage, summed for every kind of action.
+ */
+public final class ProfileReport {
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * for coding style
+     */
+    private ProfileReport() {
+    }
+
+    /**
+     * @param args [test file] ["nocache" to disable the result caches]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : null;
+        boolean noCache = args.length > 1 && args[1].equals("nocache");
+
+        List<ActionInputData> actions = Benchmarks.load(path);
+        ResultCache.getQueryCache().setEnabled(!noCache);
+        ResultCache.getRecommendationCache().setEnabled(!noCache);
+
+        Profiler profiler = Profiler.getInstance();
+        profiler.clear();
+        profiler.setEnabled(true);
+        for (ActionInputData data : actions) {
+            ActionCenter.createAction(data).apply();
+        }
+        profiler.setEnabled(false);
+
+        Map<String, Map<Profiler.Stage, Long>> totals = new TreeMap<>();
+        for (Profiler.ActionProfile profile : profiler.getReports()) {
+            System.out.println(profile);
+
+            Map<Profiler.Stage, Long> stages = totals.computeIfAbsent(profile.getDescription(),
+                    x -> new EnumMap<>(Profiler.Stage.class));
+            profile.getStages().forEach((stage, measured) ->
+                    stages.merge(stage, measured.getNanos(), Long::sum));
+        }
+
+        System.out.println();
+        totals.forEach((description, stages) -> {
+            StringBuilder line = new StringBuilder(description).append(':');
+            stages.forEach((stage, nanos) -> line.append(String.format(Locale.ROOT,
+                    " %s %.3f ms", stage, nanos / NANOS_PER_MILLI)));
+            System.out.println(line);
+        });
+    }
+}
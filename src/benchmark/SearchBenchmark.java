@@ -0,0 +1,182 @@
+package benchmark;
+
+import action.CustomSort;
+import action.Recommendation;
+import action.ResultCache;
+import common.Constants;
+import entertainment.Season;
+import entertainment.Video;
+import fileio.Input;
+import fileio.SerialInputData;
+import fileio.UserInputData;
+import repository.Repository;
+import user.User;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares the search recommendations of a test file, computed by sorting
+ * all the videos of the genre (as the recommendation used to do), by walking
+ * the rating index of the genre and by streaming it with a limit; reports
+ * the time and the bytes allocated per recommendation and checks that the
+ * messages are identical. The personalized searches of the same users and
+ * genres (scored with the genre affinity of the user and cut to the top K)
+ * are measured as well, to compare with the global sort.
+ * <p>
+ * The genres of the tests hold only a few dozen videos, so the same searches
+ * are then measured on a big synthetic catalog, where the sort is no longer
+ * hidden by the fixed costs of a recommendation.
+ */
+public final class SearchBenchmark {
+    private static final int DEFAULT_ROUNDS = 2000;
+    private static final int DEFAULT_VIDEOS = 20000;
+    private static final int LIMIT = 3;
+    private static final List<String> GENRES = List.of("Drama", "Comedy", "Crime", "Action",
+            "Thriller", "Mystery", "Fantasy", "Family");
+    private static final int GENRES_PER_VIDEO = 2;
+    private static final int USERS = 50;
+    private static final int HISTORY = 100;
+    private static final int MAX_GRADE = 10;
+    private static final int SYNTHETIC_ROUNDS = 20;
+    private static final long SEED = 7;
+
+    /**
+     * for coding style
+     */
+    private SearchBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [rounds] [synthetic videos]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : null;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+        int videoCount = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_VIDEOS;
+
+        List<Map.Entry<String, String>> searches = Benchmarks.ofType(Benchmarks.load(path),
+                Constants.RECOMMENDATION).stream()
+                .filter(x -> x.getType().equals(Constants.SEARCH))
+                .map(x -> Map.entry(x.getUsername(), x.getGenre()))
+                .collect(Collectors.toList());
+        ResultCache.getRecommendationCache().setEnabled(false);
+        compare("test", searches, rounds);
+
+        Random random = new Random(SEED);
+        List<SerialInputData> serials = new ArrayList<>(videoCount);
+        for (int i = 0; i < videoCount; i++) {
+            Set<String> genres = new HashSet<>();
+            while (genres.size() < GENRES_PER_VIDEO) {
+                genres.add(GENRES.get(random.nextInt(GENRES.size())));
+            }
+            Season season = new Season(1, 0);
+            season.setRatings(List.of((double) (1 + random.nextInt(MAX_GRADE))));
+            serials.add(new SerialInputData("serial" + i, new ArrayList<>(),
+                    new ArrayList<>(genres), 1, new ArrayList<>(List.of(season)), 0));
+        }
+
+        List<UserInputData> users = new ArrayList<>(USERS);
+        List<Map.Entry<String, String>> synthetic = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            Map<String, Integer> history = new HashMap<>();
+            while (history.size() < Math.min(HISTORY, videoCount)) {
+                history.put("serial" + random.nextInt(videoCount), 1);
+            }
+            users.add(new UserInputData("user" + i, Constants.PREMIUM, history,
+                    new ArrayList<>()));
+            synthetic.add(Map.entry("user" + i, GENRES.get(random.nextInt(GENRES.size()))));
+        }
+        Repository.getInstance(new Input(List.of(), users, List.of(), List.of(), serials));
+        compare(videoCount + " videos", synthetic, SYNTHETIC_ROUNDS);
+    }
+
+    /**
+     * Measures every version of the given searches (pairs of a username and
+     * a genre) on the loaded database.
+     */
+    private static void compare(final String name, final List<Map.Entry<String, String>> searches,
+                                final int rounds) {
+        boolean identical = true;
+        for (Map.Entry<String, String> data : searches) {
+            identical &= sorted(data).equals(recommendation(data).apply());
+        }
+        System.out.println(name + ": " + searches.size() + " searches, messages identical to "
+                + "the sorted version: " + identical);
+
+        Map<String, Function<Map.Entry<String, String>, Supplier<String>>> versions =
+                new LinkedHashMap<>();
+        versions.put("sorted", data -> () -> sorted(data));
+        versions.put("index", data -> () -> recommendation(data).apply());
+        versions.put("streamed, limit " + LIMIT, data -> () ->
+                recommendation(data).searchStream(LIMIT).map(Video::getTitle)
+                        .collect(Collectors.toList()).toString());
+        versions.put("personalized, top " + Recommendation.PERSONALIZED_RESULTS, data -> () ->
+                new Recommendation(0, data.getKey(), Constants.PERSONALIZED_SEARCH,
+                        data.getValue()).apply());
+
+        /**
+         * Every version is run once before measuring, to warm up the JIT.
+         */
+        versions.forEach((version, search) -> run(searches, rounds, search));
+        versions.forEach((version, search) -> {
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long bytes = threads.getCurrentThreadAllocatedBytes();
+            long nanos = run(searches, rounds, search);
+            long operations = (long) rounds * searches.size();
+            Benchmarks.report(name + ", " + version, operations, nanos);
+            System.out.println("    allocated bytes/op: "
+                    + (threads.getCurrentThreadAllocatedBytes() - bytes)
+                    / Math.max(operations, 1));
+        });
+    }
+
+    private static Recommendation recommendation(final Map.Entry<String, String> data) {
+        return new Recommendation(0, data.getKey(), Constants.SEARCH, data.getValue());
+    }
+
+    /**
+     * The search recommendation computed by sorting all the videos of the genre.
+     */
+    private static String sorted(final Map.Entry<String, String> data) {
+        Repository repo = Repository.getInstance();
+        User user = repo.findUser(data.getKey());
+        if (user == null || !user.getSubscriptionType().equals(Constants.PREMIUM)) {
+            return "SearchRecommendation cannot be applied!";
+        }
+
+        List<Video> videos = Stream.concat(repo.getMovies().stream(), repo.getSerials().stream())
+                .filter(x -> x.getGenres().contains(data.getValue()))
+                .filter(x -> !user.getHistory().containsKey(x.getTitle()))
+                .collect(Collectors.toList());
+        videos = CustomSort.sortVideos(videos, videos.stream()
+                .collect(Collectors.toMap(x -> x, Video::getAverageRating)), Constants.ASC);
+
+        return videos.isEmpty() ? "SearchRecommendation cannot be applied!"
+                : "SearchRecommendation result: " + videos.stream().map(Video::getTitle)
+                        .collect(Collectors.toList());
+    }
+
+    private static long run(final List<Map.Entry<String, String>> searches, final int rounds,
+                            final Function<Map.Entry<String, String>, Supplier<String>> search) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (Map.Entry<String, String> data : searches) {
+                search.apply(data).get();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import action.Action;
+import action.ActionCenter;
+import action.ResultCache;
+import action.ScoreVectors;
+import common.Constants;
+import fileio.ActionInputData;
+
+import java.util.List;
+
+/**
+ * Measures the queries of a test file replayed as one read-only run (the
+ * score vectors are shared by all the queries) and one by one, outside of
+ * a run (every query computes its own scores); the result caches are
+ * disabled, so every query is executed.
+ * <p>
+ * Only the favorite and average queries read the shared vectors, so the
+ * default test is one with several of them in the same run; the benchmark
+ * fails if no vector was reused, since it would then measure nothing.
+ */
+public final class SharedScoringBenchmark {
+    /**
+     * Test used when no input file is given in the command line
+     * (6 favorite and average queries)
+     */
+    private static final String DEFAULT_TEST = Constants.TESTS_PATH + "large_test_no_9.json";
+
+    private static final int DEFAULT_ROUNDS = 1000;
+
+    /**
+     * for coding style
+     */
+    private SharedScoringBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [rounds]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : DEFAULT_TEST;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        List<ActionInputData> queries = Benchmarks.ofType(Benchmarks.load(path),
+                Constants.QUERY);
+        ResultCache.getQueryCache().setEnabled(false);
+        long operations = (long) rounds * queries.size();
+
+        /**
+         * Both modes are run once before measuring, to warm up the JIT.
+         */
+        run(queries, rounds, true);
+        run(queries, rounds, false);
+        Benchmarks.report("queries, one read-only run", operations, run(queries, rounds, true));
+        Benchmarks.report("queries, no shared scores", operations, run(queries, rounds, false));
+        System.out.println(ScoreVectors.getInstance());
+        if (ScoreVectors.getInstance().getReused() == 0) {
+            throw new IllegalStateException("no score vector was reused by the queries from "
+                    + path + "; use a test with several favorite or average queries");
+        }
+    }
+
+    private static long run(final List<ActionInputData> queries, final int rounds,
+                            final boolean shared) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            for (ActionInputData data : queries) {
+                Action action = ActionCenter.createAction(data);
+                if (shared) {
+                    ActionCenter.apply(action);
+                } else {
+                    action.apply();
+                }
+            }
+        }
+        ScoreVectors.getInstance().endRun();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,147 @@
+package benchmark;
+
+import action.Recommendation;
+import common.Constants;
+import entertainment.Movie;
+import entertainment.Video;
+import repository.Repository;
+import repository.SimilarityIndex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares the "more like this" lookups of SimilarityIndex with the brute
+ * force search over the whole catalog: the average latency and the recall
+ * (the fraction of the exact top results that are found) of mostSimilar()
+ * and of the LSH candidates alone, on the catalog of every test file and on
+ * a big synthetic catalog made of groups of videos with similar casts.
+ */
+public final class SimilarityBenchmark {
+    private static final int DEFAULT_VIDEOS = 50_000;
+    private static final int LOOKUPS = 1000;
+    private static final int GROUP_SIZE = 20;
+    private static final int GROUP_CAST = 8;
+    private static final int GROUP_GENRES = 3;
+    private static final int CAST_SIZE = 4;
+    private static final int GENRES = 2;
+    private static final int ACTORS = 100_000;
+    private static final int GENRE_NAMES = 20;
+    private static final long SEED = 7;
+    private static final String TESTS_PREFIX = "large_test_no_";
+
+    /**
+     * for coding style
+     */
+    private SimilarityBenchmark() {
+    }
+
+    /**
+     * @param args [synthetic videos] [test files] (all the large tests by default)
+     */
+    public static void main(final String[] args) {
+        int videoCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_VIDEOS;
+        List<String> paths = new ArrayList<>(Arrays.asList(args).subList(Math.min(1,
+                args.length), args.length));
+        if (paths.isEmpty()) {
+            File[] tests = new File(Constants.TESTS_PATH).listFiles((dir, name) ->
+                    name.startsWith(TESTS_PREFIX));
+            for (File test : (tests != null) ? tests : new File[0]) {
+                paths.add(test.getPath());
+            }
+            paths.sort(Comparator.comparing(String::length).thenComparing(x -> x));
+        }
+
+        for (String path : paths) {
+            Benchmarks.load(path);
+            Repository repo = Repository.getInstance();
+            measure(new File(path).getName(), repo.getSimilarity(), repo.getVideos());
+        }
+
+        Random random = new Random(SEED);
+        List<Video> videos = new ArrayList<>(videoCount);
+        Map<Video, Integer> positions = new HashMap<>();
+        for (int i = 0; i < videoCount; i++) {
+            /**
+             * Every video takes most of its cast and its genres from the
+             * pools of its group, and one actor from the whole pool.
+             */
+            int group = i / GROUP_SIZE;
+            Set<String> cast = new HashSet<>();
+            while (cast.size() < CAST_SIZE - 1) {
+                cast.add("actor" + (group * GROUP_CAST + random.nextInt(GROUP_CAST)));
+            }
+            cast.add("actor" + random.nextInt(ACTORS));
+            Set<String> genres = new HashSet<>();
+            while (genres.size() < GENRES) {
+                genres.add("genre" + (group * GROUP_GENRES + random.nextInt(GROUP_GENRES))
+                        % GENRE_NAMES);
+            }
+
+            Video video = new Movie("movie" + i, new ArrayList<>(cast), new ArrayList<>(genres),
+                    0, 0);
+            positions.put(video, i);
+            videos.add(video);
+        }
+
+        long start = System.nanoTime();
+        SimilarityIndex index = new SimilarityIndex(videos, positions);
+        Benchmarks.report("build, " + videoCount + " videos", 1, System.nanoTime() - start);
+        measure("synthetic catalog", index, videos);
+    }
+
+    private static void measure(final String name, final SimilarityIndex index,
+                                final List<Video> videos) {
+        Random random = new Random(SEED);
+        List<Video> targets = new ArrayList<>();
+        for (int i = 0; i < LOOKUPS && !videos.isEmpty(); i++) {
+            targets.add(videos.get(random.nextInt(videos.size())));
+        }
+
+        List<List<Video>> exact = new ArrayList<>();
+        long start = System.nanoTime();
+        for (Video video : targets) {
+            exact.add(index.mostSimilarExact(video, Recommendation.SIMILAR_VIDEOS));
+        }
+        long exactNanos = System.nanoTime() - start;
+
+        List<List<Video>> approximate = new ArrayList<>();
+        start = System.nanoTime();
+        for (Video video : targets) {
+            approximate.add(index.mostSimilarApproximate(video, Recommendation.SIMILAR_VIDEOS));
+        }
+        long approximateNanos = System.nanoTime() - start;
+
+        List<List<Video>> results = new ArrayList<>();
+        start = System.nanoTime();
+        for (Video video : targets) {
+            results.add(index.mostSimilar(video, Recommendation.SIMILAR_VIDEOS));
+        }
+        long resultNanos = System.nanoTime() - start;
+
+        Benchmarks.report(name + ", brute force", targets.size(), exactNanos);
+        Benchmarks.report(name + ", lsh candidates only", targets.size(), approximateNanos);
+        Benchmarks.report(name + ", mostSimilar", targets.size(), resultNanos);
+        System.out.printf("%s (%d videos), recall of the top %d: lsh only %.3f, mostSimilar %.3f%n",
+                name, videos.size(), Recommendation.SIMILAR_VIDEOS, recall(exact, approximate),
+                recall(exact, results));
+    }
+
+    private static double recall(final List<List<Video>> exact, final List<List<Video>> found) {
+        int expected = 0;
+        int hits = 0;
+        for (int i = 0; i < exact.size(); i++) {
+            expected += exact.get(i).size();
+            hits += (int) exact.get(i).stream().filter(found.get(i)::contains).count();
+        }
+        return (expected == 0) ? 1.0 : (double) hits / expected;
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark;
+
+import common.Constants;
+import repository.HyperLogLog;
+import repository.ViewSketches;
+import user.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds a skewed synthetic view stream to ViewSketches and to exact
+ * counters and compares them: the time per view, the recall of the exact
+ * most viewed titles among the heavy hitters, the errors of the view and
+ * distinct viewer estimates, and the memory of the sketches.
+ */
+public final class SketchBenchmark {
+    private static final int DEFAULT_VIEWS = 5_000_000;
+    private static final int TITLES = 50_000;
+    private static final int USERS = 100_000;
+    private static final int TOP = 10;
+    private static final int CHECKED_TITLES = 200;
+    private static final int SKEW = 3;
+    private static final long SEED = 17;
+    private static final int KB = 1024;
+
+    /**
+     * for coding style
+     */
+    private SketchBenchmark() {
+    }
+
+    /**
+     * @param args [views] [epsilon] [hyperloglog precision]
+     */
+    public static void main(final String[] args) {
+        int viewCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_VIEWS;
+        double epsilon = (args.length > 1) ? Double.parseDouble(args[1])
+                                           : ViewSketches.DEFAULT_EPSILON;
+        int precision = (args.length > 2) ? Integer.parseInt(args[2])
+                                          : ViewSketches.DEFAULT_PRECISION;
+
+        List<String> titles = new ArrayList<>(TITLES);
+        for (int i = 0; i < TITLES; i++) {
+            titles.add("title" + i);
+        }
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User("user" + i, Constants.PREMIUM, new HashMap<>(), new ArrayList<>()));
+        }
+        ViewSketches sketches = new ViewSketches(List.of(), titles, epsilon,
+                ViewSketches.DEFAULT_DELTA, precision, ViewSketches.DEFAULT_HEAVY_HITTERS);
+
+        Random random = new Random(SEED);
+        int[] titleStream = new int[viewCount];
+        int[] userStream = new int[viewCount];
+        for (int i = 0; i < viewCount; i++) {
+            titleStream[i] = (int) (Math.pow(random.nextDouble(), SKEW) * TITLES);
+            userStream[i] = random.nextInt(USERS);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < viewCount; i++) {
+            sketches.registerView(users.get(userStream[i]), titles.get(titleStream[i]));
+        }
+        Benchmarks.report("sketch view", viewCount, System.nanoTime() - start);
+
+        Map<String, Long> counts = new HashMap<>();
+        Map<String, Set<Integer>> viewers = new HashMap<>();
+        start = System.nanoTime();
+        for (int i = 0; i < viewCount; i++) {
+            String title = titles.get(titleStream[i]);
+            counts.merge(title, 1L, Long::sum);
+            viewers.computeIfAbsent(title, x -> new HashSet<>()).add(userStream[i]);
+        }
+        Benchmarks.report("exact view", viewCount, System.nanoTime() - start);
+
+        List<String> exactTop = counts.keySet().stream()
+                .sorted(Comparator.comparing((String x) -> -counts.get(x))).limit(TOP)
+                .collect(Collectors.toList());
+        List<String> hitters = sketches.getHeavyHitters();
+        long found = exactTop.stream().filter(hitters.subList(0, TOP)::contains).count();
+        System.out.printf("recall of the top %d among the first %d heavy hitters: %d/%d%n",
+                TOP, TOP, found, TOP);
+
+        double viewsError = 0;
+        double viewersError = 0;
+        List<String> checked = new ArrayList<>(counts.keySet()).subList(0, CHECKED_TITLES);
+        for (String title : checked) {
+            viewsError += sketches.estimateViews(title) - counts.get(title);
+            int exact = viewers.get(title).size();
+            viewersError += Math.abs(sketches.estimateViewers(title) - exact) / (double) exact;
+        }
+        System.out.printf("views: mean overestimate %.1f (bound %.1f)%n",
+                viewsError / checked.size(), sketches.getViewsError());
+        System.out.printf("distinct viewers: mean relative error %.4f (standard error %.4f)%n",
+                viewersError / checked.size(), HyperLogLog.standardError(precision));
+        System.out.printf("sketch memory: %d KB%n", sketches.memoryBytes() / KB);
+    }
+}
@@ -0,0 +1,151 @@
+package benchmark;
+
+import repository.TextIndex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the autocomplete and substring searches of TextIndex on a big
+ * synthetic catalog (titles made of random words, with skewed view counts):
+ * the time to build the index, the time to add titles to it, the average
+ * latency of both kinds of searches for texts taken from existing titles
+ * (also for texts of one or two characters only), and the agreement of the
+ * results with a brute force scan.
+ */
+public final class TextIndexBenchmark {
+    private static final int DEFAULT_TITLES = 1_000_000;
+    private static final int ADDED_TITLES = 10_000;
+    private static final int SEARCHES = 10_000;
+    private static final int CHECKED = 100;
+    private static final int RESULTS = 10;
+    private static final int WORDS = 20_000;
+    private static final int MIN_WORD = 3;
+    private static final int MAX_WORD = 9;
+    private static final int MAX_TITLE_WORDS = 4;
+    private static final int MAX_PREFIX = 6;
+    private static final int MIN_SUBSTRING = 3;
+    private static final int MAX_SUBSTRING = 8;
+    private static final int MAX_SHORT = 2;
+    private static final int MAX_VIEWS = 1_000_000;
+    private static final long SEED = 11;
+
+    /**
+     * for coding style
+     */
+    private TextIndexBenchmark() {
+    }
+
+    /**
+     * @param args [synthetic titles]
+     */
+    public static void main(final String[] args) {
+        int titleCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_TITLES;
+        Random random = new Random(SEED);
+
+        List<String> words = new ArrayList<>(WORDS);
+        for (int i = 0; i < WORDS; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = MIN_WORD + random.nextInt(MAX_WORD - MIN_WORD + 1);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ((j == 0 ? 'A' : 'a') + random.nextInt('z' - 'a' + 1)));
+            }
+            words.add(word.toString());
+        }
+
+        Map<String, Long> titles = new HashMap<>();
+        while (titles.size() < titleCount + ADDED_TITLES) {
+            StringBuilder title = new StringBuilder();
+            int length = 1 + random.nextInt(MAX_TITLE_WORDS);
+            for (int j = 0; j < length; j++) {
+                /**
+                 * The square favours the first words, so some words are
+                 * much more common than others, as in real titles.
+                 */
+                double skew = random.nextDouble();
+                title.append(j == 0 ? "" : " ").append(words.get((int) (skew * skew * WORDS)));
+            }
+            /**
+             * Few titles get most of the views.
+             */
+            double skew = random.nextDouble();
+            titles.put(title.toString(), (long) (Math.pow(skew, MAX_TITLE_WORDS) * MAX_VIEWS));
+        }
+        List<String> names = new ArrayList<>(titles.keySet());
+        names.sort(Comparator.naturalOrder());
+
+        TextIndex index = new TextIndex();
+        long start = System.nanoTime();
+        for (String name : names.subList(0, titleCount)) {
+            index.add(TextIndex.Kind.MOVIE, name, titles.get(name));
+        }
+        Benchmarks.report("build, " + titleCount + " titles", 1, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (String name : names.subList(titleCount, names.size())) {
+            index.add(TextIndex.Kind.MOVIE, name, titles.get(name));
+        }
+        Benchmarks.report("incremental add", ADDED_TITLES, System.nanoTime() - start);
+
+        List<String> prefixes = new ArrayList<>(SEARCHES);
+        List<String> substrings = new ArrayList<>(SEARCHES);
+        List<String> shortPrefixes = new ArrayList<>(SEARCHES);
+        List<String> shortSubstrings = new ArrayList<>(SEARCHES);
+        for (int i = 0; i < SEARCHES; i++) {
+            String name = names.get(random.nextInt(names.size())).toLowerCase(Locale.ROOT);
+            prefixes.add(name.substring(0, Math.min(name.length(),
+                    1 + random.nextInt(MAX_PREFIX))));
+            int length = Math.min(name.length(),
+                    MIN_SUBSTRING + random.nextInt(MAX_SUBSTRING - MIN_SUBSTRING + 1));
+            int from = random.nextInt(name.length() - length + 1);
+            substrings.add(name.substring(from, from + length));
+
+            length = Math.min(name.length(), 1 + random.nextInt(MAX_SHORT));
+            shortPrefixes.add(name.substring(0, length));
+            from = random.nextInt(name.length() - length + 1);
+            shortSubstrings.add(name.substring(from, from + length));
+        }
+
+        measure("autocomplete", index, prefixes, true, names, titles);
+        measure("substring", index, substrings, false, names, titles);
+        measure("autocomplete, 1-2 characters", index, shortPrefixes, true, names, titles);
+        measure("substring, 1-2 characters", index, shortSubstrings, false, names, titles);
+    }
+
+    private static void measure(final String name, final TextIndex index,
+                                final List<String> texts, final boolean prefix,
+                                final List<String> names, final Map<String, Long> scores) {
+        /**
+         * Warm-up, so the first searches are not measured while interpreted.
+         */
+        for (String text : texts) {
+            index.search(TextIndex.Kind.MOVIE, text, prefix, RESULTS);
+        }
+
+        long start = System.nanoTime();
+        for (String text : texts) {
+            index.search(TextIndex.Kind.MOVIE, text, prefix, RESULTS);
+        }
+        Benchmarks.report(name, texts.size(), System.nanoTime() - start);
+
+        Comparator<String> byScore = Comparator.comparing((String x) -> -scores.get(x))
+                .thenComparing(Comparator.naturalOrder());
+        int agreed = 0;
+        for (String text : texts.subList(0, CHECKED)) {
+            List<String> expected = names.stream()
+                    .filter(x -> prefix ? x.toLowerCase(Locale.ROOT).startsWith(text)
+                            : x.toLowerCase(Locale.ROOT).contains(text))
+                    .sorted(byScore).limit(RESULTS).toList();
+            if (expected.equals(index.search(TextIndex.Kind.MOVIE, text, prefix, RESULTS))) {
+                agreed++;
+            }
+        }
+        System.out.printf("%s, results equal to the brute force scan: %d/%d%n", name, agreed,
+                CHECKED);
+    }
+}
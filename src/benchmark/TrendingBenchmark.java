@@ -0,0 +1,134 @@
+package benchmark;
+
+import action.Query;
+import action.ResultCache;
+import common.Constants;
+import entertainment.Video;
+import repository.Repository;
+import repository.TrendingScores;
+import user.User;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Replays many synthetic views on the database of a test file, with the set
+ * of popular titles moving over time, and measures the cost of a view (which
+ * updates the trending scores and their indexes) and of the "trending" and
+ * "most_viewed" queries. The result of the trending query is checked against
+ * the scores recomputed from the time of every view, both for the first
+ * titles and for all of them: most titles were last watched so long ago
+ * that their decayed score is below the smallest double, so the scores are
+ * recomputed as base 2 logarithms.
+ */
+public final class TrendingBenchmark {
+    private static final int DEFAULT_VIEWS = 1_000_000;
+    private static final int QUERIES = 10_000;
+    private static final int RESULTS = 10;
+    private static final int HOT_TITLES = 5;
+    private static final int HOT_PERIOD = 1000;
+    private static final double HOT_PROBABILITY = 0.5;
+    private static final int QUIET_VIEWS = 200_000;
+    private static final long SEED = 3;
+
+    /**
+     * for coding style
+     */
+    private TrendingBenchmark() {
+    }
+
+    /**
+     * @param args [test file] [views]
+     */
+    public static void main(final String[] args) {
+        String path = (args.length > 0) ? args[0] : null;
+        int viewCount = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_VIEWS;
+
+        Benchmarks.load(path);
+        Repository repo = Repository.getInstance();
+        List<User> users = repo.getUsers();
+        List<? extends Video> movies = repo.getMovies();
+
+        /**
+         * Exact decayed scores (their base 2 logarithms, relative to time 0),
+         * recomputed from the time of every view; the views from the
+         * database are counted at time 0.
+         */
+        Map<String, Double> expected = new HashMap<>();
+        for (User user : users) {
+            user.getHistory().forEach((title, count) -> expected.merge(title,
+                    log2(count), TrendingBenchmark::log2Sum));
+        }
+
+        Random random = new Random(SEED);
+        long start = System.nanoTime();
+        for (int time = 1; time <= viewCount + QUIET_VIEWS; time++) {
+            /**
+             * Half of the views go to a few titles that change every period;
+             * the last QUIET_VIEWS views all go to the first title, so the
+             * other ones are not watched for thousands of half-lives.
+             */
+            int position;
+            if (time > viewCount) {
+                position = 0;
+            } else if (random.nextDouble() < HOT_PROBABILITY) {
+                position = time / HOT_PERIOD * HOT_TITLES + random.nextInt(HOT_TITLES);
+            } else {
+                position = random.nextInt(movies.size());
+            }
+            String title = movies.get(position % movies.size()).getTitle();
+            User user = users.get(random.nextInt(users.size()));
+
+            user.getHistory().merge(title, 1, Integer::sum);
+            repo.registerView(user, title, time);
+            expected.merge(title, time / TrendingScores.HALF_LIFE, TrendingBenchmark::log2Sum);
+        }
+        Benchmarks.report("view", viewCount + QUIET_VIEWS, System.nanoTime() - start);
+
+        ResultCache.getQueryCache().setEnabled(false);
+        List<List<String>> filters = Collections.nCopies(Constants.AWARDS_POS + 1, null);
+        for (String criteria : List.of(Constants.TRENDING, Constants.MOST_VIEWED)) {
+            Query query = new Query(0, Constants.MOVIES, RESULTS, filters, Constants.DESC,
+                    criteria);
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                query.apply();
+            }
+            Benchmarks.report(criteria + " query", QUERIES, System.nanoTime() - start);
+            System.out.println("    " + query.apply());
+        }
+
+        List<String> exact = movies.stream().map(Video::getTitle).distinct()
+                .filter(expected::containsKey)
+                .sorted(Comparator.comparing((String x) -> -expected.get(x))
+                        .thenComparing(Comparator.reverseOrder()))
+                .collect(Collectors.toList());
+        System.out.println("trending query equal to the recomputed scores: "
+                + ("Query result: " + exact.subList(0, Math.min(RESULTS, exact.size())))
+                .equals(new Query(0, Constants.MOVIES, RESULTS, filters, Constants.DESC,
+                        Constants.TRENDING).apply()));
+        System.out.println("all the " + exact.size() + " viewed movies in the recomputed "
+                + "order: " + ("Query result: " + exact).equals(new Query(0, Constants.MOVIES,
+                movies.size(), filters, Constants.DESC, Constants.TRENDING).apply()));
+    }
+
+    /**
+     * @return base 2 logarithm of a number
+     */
+    private static double log2(final double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    /**
+     * @return log2(2^a + 2^b)
+     */
+    private static double log2Sum(final double a, final double b) {
+        double max = Math.max(a, b);
+        return max + log2(1 + Math.pow(2, Math.min(a, b) - max));
+    }
+}
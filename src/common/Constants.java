@@ -82,10 +82,26 @@ public final class Constants {
     public static final String RATINGS = "ratings";
     public static final String LONGEST = "longest";
     public static final String MOST_VIEWED = "most_viewed";
+    public static final String TRENDING = "trending";
+    public static final String APPROX_MOST_VIEWED = "approx_most_viewed";
+    public static final String DISTINCT_VIEWERS = "distinct_viewers";
+    public static final String MEDIAN_RATING = "median_rating";
+    public static final String P90_RATING = "p90_rating";
+    public static final String MOST_POLARIZING = "most_polarizing";
+    public static final String GENRE_STATS = "genre_stats";
+    public static final String YEAR_STATS = "year_stats";
+    public static final String GENRE_YEAR_STATS = "genre_year_stats";
     public static final String STANDARD = "standard";
     public static final String BEST_UNSEEN = "best_unseen";
     public static final String POPULAR_GENRE = "popular";
     public static final String SEARCH = "search";
+    public static final String PERSONALIZED_SEARCH = "personalized_search";
+    public static final String SIMILAR_USERS_WATCHED = "similar_users_watched";
+    public static final String MORE_LIKE_THIS = "more_like_this";
+    public static final String CO_STARS = "co_stars";
+    public static final String DEGREES_OF_SEPARATION = "degrees_of_separation";
+    public static final String AUTOCOMPLETE = "autocomplete";
+    public static final String SUBSTRING = "substring";
     public static final int AWARDS_POS = 3;
     public static final int WORDS_POS = 2;
     public static final int YEAR_POS = 0;
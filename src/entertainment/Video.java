@@ -1,5 +1,7 @@
 package entertainment;
 
+import utils.Utils;
+
 import java.util.ArrayList;
 
 public abstract class Video {
@@ -7,6 +9,10 @@ public abstract class Video {
     private final int year;
     private final ArrayList<String> cast;
     private final ArrayList<String> genres;
+    /**
+     * Bit i is set if one of the genres is the Genre with ordinal i
+     */
+    private final int genresMask;
 
     public Video(final String title, final int year,
                  final ArrayList<String> cast, final ArrayList<String> genres) {
@@ -14,6 +20,7 @@ public abstract class Video {
         this.year = year;
         this.cast = cast;
         this.genres = genres;
+        this.genresMask = Utils.genresToMask(genres);
     }
 
     /**
@@ -46,4 +53,8 @@ public abstract class Video {
     public final ArrayList<String> getGenres() {
         return genres;
     }
+
+    public final int getGenresMask() {
+        return genresMask;
+    }
 }
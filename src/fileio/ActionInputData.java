@@ -65,6 +65,12 @@ public final class ActionInputData {
 
     protected ActionInputData(final int actionId, final String actionType,
                               final String type, final String username, final String genre) {
+        this(actionId, actionType, type, username, genre, null);
+    }
+
+    protected ActionInputData(final int actionId, final String actionType,
+                              final String type, final String username, final String genre,
+                              final String title) {
         this.actionId = actionId;
         this.actionType = actionType;
         this.type = type;
@@ -74,7 +80,7 @@ public final class ActionInputData {
         this.sortType = null;
         this.criteria = null;
         this.number = 0;
-        this.title = null;
+        this.title = title;
         this.grade = 0;
         this.seasonNumber = 0;
     }
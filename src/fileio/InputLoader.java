@@ -260,7 +260,8 @@ public final class InputLoader {
                                 actionType,
                                 (String) ((JSONObject) jsonIterator).get(Constants.TYPE),
                                 (String) ((JSONObject) jsonIterator).get(Constants.USERNAME),
-                                (String) ((JSONObject) jsonIterator).get(Constants.GENRE)
+                                (String) ((JSONObject) jsonIterator).get(Constants.GENRE),
+                                (String) ((JSONObject) jsonIterator).get(Constants.TITLE)
                         ));
                         default -> {
                         }
@@ -0,0 +1,39 @@
+package main;
+
+import action.Action;
+import action.ActionCenter;
+import action.Query;
+import fileio.ActionInputData;
+import fileio.Input;
+import fileio.InputLoader;
+import repository.Repository;
+
+/**
+ * Prints the plan of every query from an input file: the actions are
+ * applied in order, and every query is explained on the state of the
+ * database right before it runs.
+ */
+public final class Explain {
+    /**
+     * for coding style
+     */
+    private Explain() {
+    }
+
+    /**
+     * @param args path to the input file
+     */
+    public static void main(final String[] args) {
+        Input input = new InputLoader(args[0]).readData();
+        Repository.getInstance(input);
+
+        for (ActionInputData data : input.getCommands()) {
+            Action action = ActionCenter.createAction(data);
+            if (action instanceof Query) {
+                System.out.println(data.getActionId() + " " + data.getObjectType() + " "
+                        + ((Query) action).explain());
+            }
+            action.apply();
+        }
+    }
+}
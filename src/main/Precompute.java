@@ -0,0 +1,50 @@
+package main;
+
+import action.ActionCenter;
+import action.BulkRecommendations;
+import action.ScoreVectors;
+import fileio.ActionInputData;
+import fileio.Input;
+import fileio.InputLoader;
+import repository.Repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Applies the actions of an input file and then writes the standard,
+ * best_unseen and favorite recommendations of every user, one JSON line per
+ * user, to a file (or to the standard output).
+ */
+public final class Precompute {
+    /**
+     * for coding style
+     */
+    private Precompute() {
+    }
+
+    /**
+     * @param args path to the input file and, optionally, to the output file
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        Input input = new InputLoader(args[0]).readData();
+        Repository.getInstance(input);
+        for (ActionInputData data : input.getCommands()) {
+            ActionCenter.apply(ActionCenter.createAction(data));
+        }
+        ScoreVectors.getInstance().endRun();
+
+        try (Writer out = (args.length > 1)
+                ? Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out,
+                        StandardCharsets.UTF_8))) {
+            new BulkRecommendations().run(out);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package repository;
+
+import entertainment.Genre;
+import entertainment.Movie;
+import entertainment.Season;
+import entertainment.Serial;
+import entertainment.Video;
+import user.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * Aggregates of the videos grouped by (Genre, year), separately for the
+ * movies and for the shows: number of videos, total views, number of
+ * ratings with the sum of their grades, and number of favorites lists the
+ * videos appear in.
+ * <p>
+ * A video with several genres is counted in the cell of each of them, so
+ * every year also has an "all genres" cell, where every video is counted
+ * once; a roll-up over the genres reads that cell instead of adding the
+ * genres together. The cells are filled when the database is loaded and
+ * every view, rating and favorite updates the cells of its video, so a
+ * group-by or a roll-up reads O(cells) numbers and never the videos.
+ */
+public final class AggregateCube {
+    private static final int GENRES = Genre.values().length;
+    /**
+     * Index of the "all genres" cell of a year
+     */
+    private static final int ALL_GENRES = GENRES;
+    private static final int TYPES = 2;
+
+    /**
+     * Cells of every year, indexed by type * (GENRES + 1) + genre
+     */
+    private final TreeMap<Integer, Cell[]> years;
+
+    /**
+     * @param videos all the videos
+     * @param views total number of views of every title
+     * @param users all the users, with their favorites lists
+     * @param videosByTitle videos of every title
+     */
+    public AggregateCube(final List<Video> videos, final Map<String, Integer> views,
+                         final List<User> users, final Map<String, List<Video>> videosByTitle) {
+        years = new TreeMap<>();
+        for (Video video : videos) {
+            for (Cell cell : cells(video)) {
+                cell.videos++;
+                cell.views += views.getOrDefault(video.getTitle(), 0);
+            }
+            if (video instanceof Movie) {
+                ((Movie) video).getRatings().forEach(x -> registerRating(video, x));
+            } else {
+                for (Season season : ((Serial) video).getSeasons()) {
+                    season.getRatings().forEach(x -> registerRating(video, x));
+                }
+            }
+        }
+        for (User user : users) {
+            for (String title : user.getFavoriteMovies()) {
+                videosByTitle.getOrDefault(title, List.of()).forEach(this::registerFavorite);
+            }
+        }
+    }
+
+    /**
+     * Must be called after a user watched a video.
+     * @param video viewed video
+     */
+    public void registerView(final Video video) {
+        for (Cell cell : cells(video)) {
+            cell.views++;
+        }
+    }
+
+    /**
+     * Must be called after a user rated a video.
+     * @param video rated video
+     * @param grade value of the rating
+     */
+    public void registerRating(final Video video, final double grade) {
+        for (Cell cell : cells(video)) {
+            cell.ratings++;
+            cell.gradeSum += grade;
+        }
+    }
+
+    /**
+     * Must be called after a video was added to a favorites list.
+     * @param video the video
+     */
+    public void registerFavorite(final Video video) {
+        for (Cell cell : cells(video)) {
+            cell.favorites++;
+        }
+    }
+
+    /**
+     * @return the years of the videos, in ascending order
+     */
+    public NavigableSet<Integer> getYears() {
+        return years.navigableKeySet();
+    }
+
+    /**
+     * Reads a cell or a roll-up of cells.
+     * @param movies true for the movies, false for the shows
+     * @param genre a genre; null to roll up all the genres
+     * @param year a year; null to roll up all the years
+     * @return the aggregates of the videos in the group
+     */
+    public Cell get(final boolean movies, final Genre genre, final Integer year) {
+        int index = (movies ? 0 : 1) * (GENRES + 1)
+                + ((genre != null) ? genre.ordinal() : ALL_GENRES);
+        Cell result = new Cell();
+        for (Cell[] cells : (year != null) ? yearCells(year) : years.values()) {
+            if (cells[index] != null) {
+                result.add(cells[index]);
+            }
+        }
+        return result;
+    }
+
+    private List<Cell[]> yearCells(final int year) {
+        Cell[] cells = years.get(year);
+        return (cells != null) ? List.<Cell[]>of(cells) : List.of();
+    }
+
+    /**
+     * @return the cells a video is counted in: the cell of each of its
+     *         genres and the "all genres" cell of its year
+     */
+    private Cell[] cells(final Video video) {
+        Cell[] row = years.computeIfAbsent(video.getYear(), x -> new Cell[TYPES * (GENRES + 1)]);
+        int offset = (video instanceof Movie) ? 0 : GENRES + 1;
+        int mask = video.getGenresMask();
+
+        Cell[] result = new Cell[Integer.bitCount(mask) + 1];
+        int found = 0;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            result[found++] = cell(row, offset + Integer.numberOfTrailingZeros(bits));
+        }
+        result[found] = cell(row, offset + ALL_GENRES);
+        return result;
+    }
+
+    private static Cell cell(final Cell[] row, final int index) {
+        if (row[index] == null) {
+            row[index] = new Cell();
+        }
+        return row[index];
+    }
+
+    /**
+     * Aggregates of a group of videos.
+     */
+    public static final class Cell {
+        private long videos;
+        private long views;
+        private long ratings;
+        private double gradeSum;
+        private long favorites;
+
+        private void add(final Cell other) {
+            videos += other.videos;
+            views += other.views;
+            ratings += other.ratings;
+            gradeSum += other.gradeSum;
+            favorites += other.favorites;
+        }
+
+        public long getVideos() {
+            return videos;
+        }
+
+        public long getViews() {
+            return views;
+        }
+
+        public long getRatings() {
+            return ratings;
+        }
+
+        /**
+         * @return average of all the grades given to the videos (0 if
+         *         there are no ratings)
+         */
+        public double getAverageGrade() {
+            return (ratings == 0) ? 0 : gradeSum / ratings;
+        }
+
+        public long getFavorites() {
+            return favorites;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package repository;
+
+import entertainment.Video;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sorted secondary indexes over a list of videos (the movies or the serials),
+ * used by the video queries: by duration, by average rating, by number
+ * of views and by decayed number of views (trending). Inside every index
+ * the videos with the same key are sorted by their title, so iterating an
+ * index in ascending or descending order gives the same order as the
+ * "asc" / "desc" sort of the queries.
+ * <p>
+ * The videos of every year and of every genre are also kept (in database
+ * order), both as an access path for the filtered queries and to estimate
+ * how selective a filter is.
+ */
+public final class CatalogIndexes {
+    private final VideoIndex durations;
+    private final VideoIndex ratings;
+    private final VideoIndex views;
+    private final VideoIndex trending;
+    private final int size;
+    private final Map<Integer, List<Video>> videosByYear;
+    private final Map<String, List<Video>> videosByGenre;
+
+    /**
+     * @param videos indexed videos
+     * @param viewCounts total number of views for every title
+     * @param trendingScores decayed number of views for every title
+     * @param positions position of every video in database order
+     *                  (separates the videos that have the same title)
+     */
+    public CatalogIndexes(final List<? extends Video> videos,
+                          final Map<String, Integer> viewCounts,
+                          final TrendingScores trendingScores,
+                          final Map<Video, Integer> positions) {
+        Comparator<Video> byTitle = Comparator.comparing(Video::getTitle)
+                .thenComparing(positions::get);
+
+        durations = new VideoIndex(videos, Video::getDuration, false, byTitle);
+        ratings = new VideoIndex(videos, Video::getAverageRating, false, byTitle);
+        views = new VideoIndex(videos, x -> viewCounts.getOrDefault(x.getTitle(), 0),
+                false, byTitle);
+        trending = new VideoIndex(videos, x -> trendingScores.getLogScore(x.getTitle()),
+                false, byTitle);
+
+        size = videos.size();
+        videosByYear = new HashMap<>();
+        videosByGenre = new HashMap<>();
+        for (Video video : videos) {
+            videosByYear.computeIfAbsent(video.getYear(), x -> new ArrayList<>()).add(video);
+            for (String genre : new LinkedHashSet<>(video.getGenres())) {
+                videosByGenre.computeIfAbsent(genre, x -> new ArrayList<>()).add(video);
+            }
+        }
+    }
+
+    /**
+     * Must be called after a video was watched.
+     * @param video viewed video
+     * @param viewCount the new total number of views of the video
+     * @param trendingScore the new trending log-score of the video
+     */
+    public void registerView(final Video video, final int viewCount,
+                             final double trendingScore) {
+        views.update(video, viewCount);
+        trending.update(video, trendingScore);
+    }
+
+    /**
+     * Must be called after a video was rated.
+     * @param video rated video
+     */
+    public void registerRating(final Video video) {
+        ratings.update(video, video.getAverageRating());
+    }
+
+    /**
+     * @return number of indexed videos
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param year release year
+     * @return number of indexed videos released in that year
+     */
+    public int countByYear(final int year) {
+        return getVideosByYear(year).size();
+    }
+
+    /**
+     * @param genre name of a genre
+     * @return number of indexed videos that have the genre
+     */
+    public int countByGenre(final String genre) {
+        return getVideosByGenre(genre).size();
+    }
+
+    /**
+     * @param year release year
+     * @return indexed videos released in that year, in database order
+     */
+    public List<Video> getVideosByYear(final int year) {
+        return videosByYear.getOrDefault(year, List.of());
+    }
+
+    /**
+     * @param genre name of a genre
+     * @return indexed videos that have the genre, in database order
+     */
+    public List<Video> getVideosByGenre(final String genre) {
+        return videosByGenre.getOrDefault(genre, List.of());
+    }
+
+    /**
+     * @return the videos sorted by their duration (static after load)
+     */
+    public VideoIndex getDurations() {
+        return durations;
+    }
+
+    /**
+     * @return the videos sorted by their average rating
+     */
+    public VideoIndex getRatings() {
+        return ratings;
+    }
+
+    /**
+     * @return the videos sorted by their number of views
+     */
+    public VideoIndex getViews() {
+        return views;
+    }
+
+    /**
+     * @return the videos sorted by their trending score (the number of views
+     *         decayed with the time passed since every view)
+     */
+    public VideoIndex getTrending() {
+        return trending;
+    }
+}
@@ -0,0 +1,256 @@
+package repository;
+
+import actor.Actor;
+import entertainment.Video;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Co-star graph: two actors are linked if they played in the same title,
+ * the weight of the edge being the number of titles they share. The actors
+ * of a title are taken both from the cast of the video and from the
+ * filmographies of the actors.
+ * <p>
+ * The graph is stored in compressed sparse row form: the co-stars of actor i
+ * are targets[offsets[i]] .. targets[offsets[i + 1] - 1], with the weights at
+ * the same positions in weights, so an edge costs two ints (every edge is
+ * stored in both directions). Every row is sorted by (weight, name), which
+ * is the order of the "co_stars" query. The graph is static (the casts and
+ * the filmographies don't change).
+ */
+public final class CoStarGraph {
+    private static final int BYTES_PER_INT = 4;
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+
+    /**
+     * @param actors all the actors from the database
+     * @param videos all the videos from the database
+     */
+    public CoStarGraph(final List<Actor> actors, final List<? extends Video> videos) {
+        ids = new LinkedHashMap<>();
+        Map<String, Set<Integer>> casts = new LinkedHashMap<>();
+        for (Actor actor : actors) {
+            int id = idOf(actor.getName());
+            for (String title : actor.getFilmography()) {
+                casts.computeIfAbsent(title, x -> new LinkedHashSet<>()).add(id);
+            }
+        }
+        for (Video video : videos) {
+            for (String name : video.getCast()) {
+                casts.computeIfAbsent(video.getTitle(), x -> new LinkedHashSet<>())
+                        .add(idOf(name));
+            }
+        }
+        names = ids.keySet().toArray(new String[0]);
+
+        List<Map<Integer, Integer>> rows = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            rows.add(new HashMap<>());
+        }
+        for (Set<Integer> cast : casts.values()) {
+            for (int first : cast) {
+                for (int second : cast) {
+                    if (first != second) {
+                        rows.get(first).merge(second, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        offsets = new int[names.length + 1];
+        for (int i = 0; i < names.length; i++) {
+            offsets[i + 1] = offsets[i] + rows.get(i).size();
+        }
+        targets = new int[offsets[names.length]];
+        weights = new int[offsets[names.length]];
+        for (int i = 0; i < names.length; i++) {
+            Map<Integer, Integer> row = rows.get(i);
+            Integer[] sorted = row.keySet().toArray(new Integer[0]);
+            Arrays.sort(sorted, (o1, o2) -> {
+                int byWeight = Integer.compare(row.get(o1), row.get(o2));
+                return (byWeight != 0) ? byWeight : names[o1].compareTo(names[o2]);
+            });
+            for (int j = 0; j < sorted.length; j++) {
+                targets[offsets[i] + j] = sorted[j];
+                weights[offsets[i] + j] = row.get(sorted[j]);
+            }
+            /**
+             * The row is not needed anymore, only the arrays are kept.
+             */
+            rows.set(i, null);
+        }
+    }
+
+    private int idOf(final String name) {
+        return ids.computeIfAbsent(name, x -> ids.size());
+    }
+
+    /**
+     * @param name name of an actor
+     * @param count maximum number of co-stars
+     * @param ascending true for the co-stars that share the fewest titles
+     *                  first (the ties sorted by name), false for the
+     *                  reverse order
+     * @return names of the co-stars (empty if the actor is unknown)
+     */
+    public List<String> coStars(final String name, final int count, final boolean ascending) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            return List.of();
+        }
+
+        List<String> result = new ArrayList<>();
+        int size = Math.min(count, offsets[id + 1] - offsets[id]);
+        for (int i = 0; i < size; i++) {
+            int edge = ascending ? offsets[id] + i : offsets[id + 1] - 1 - i;
+            result.add(names[targets[edge]]);
+        }
+        return result;
+    }
+
+    /**
+     * @param name name of an actor
+     * @param other name of another actor
+     * @return number of titles the actors played in together
+     */
+    public int sharedTitles(final String name, final String other) {
+        Integer id = ids.get(name);
+        Integer otherId = ids.get(other);
+        if (id == null || otherId == null) {
+            return 0;
+        }
+        for (int edge = offsets[id]; edge < offsets[id + 1]; edge++) {
+            if (targets[edge] == otherId) {
+                return weights[edge];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Finds a shortest chain of co-stars between two actors, with a
+     * breadth-first search started from both ends (the smaller frontier is
+     * expanded first, a whole level at a time).
+     * @param from name of an actor
+     * @param to name of another actor
+     * @return the names on the chain, from the first actor to the second one
+     *         (the number of degrees of separation is its size - 1); empty,
+     *         if an actor is unknown or the actors aren't connected
+     */
+    public List<String> shortestPath(final String from, final String to) {
+        Integer source = ids.get(from);
+        Integer target = ids.get(to);
+        if (source == null || target == null) {
+            return List.of();
+        }
+        if (source.equals(target)) {
+            return List.of(from);
+        }
+
+        Search forward = new Search(source);
+        Search backward = new Search(target);
+        while (!forward.frontier.isEmpty() && !backward.frontier.isEmpty()) {
+            boolean fromSource = forward.frontier.size() <= backward.frontier.size();
+            Search search = fromSource ? forward : backward;
+            Search other = fromSource ? backward : forward;
+
+            /**
+             * The whole level is expanded before choosing where the searches
+             * meet, since the first meeting isn't always the shortest one.
+             */
+            int meeting = -1;
+            List<Integer> next = new ArrayList<>();
+            for (int node : search.frontier) {
+                for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                    int neighbour = targets[edge];
+                    if (search.depths[neighbour] != -1) {
+                        continue;
+                    }
+                    search.depths[neighbour] = search.depths[node] + 1;
+                    search.parents[neighbour] = node;
+                    next.add(neighbour);
+                    if (other.depths[neighbour] != -1 && (meeting == -1
+                            || other.depths[neighbour] < other.depths[meeting])) {
+                        meeting = neighbour;
+                    }
+                }
+            }
+            if (meeting != -1) {
+                return path(forward, backward, meeting);
+            }
+            search.frontier = next;
+        }
+        return List.of();
+    }
+
+    /**
+     * Builds the chain through the node where the two searches met.
+     */
+    private List<String> path(final Search forward, final Search backward, final int meeting) {
+        List<String> path = new ArrayList<>();
+        int node = meeting;
+        path.add(names[node]);
+        while (forward.parents[node] != -1) {
+            node = forward.parents[node];
+            path.add(names[node]);
+        }
+        Collections.reverse(path);
+
+        node = meeting;
+        while (backward.parents[node] != -1) {
+            node = backward.parents[node];
+            path.add(names[node]);
+        }
+        return path;
+    }
+
+    /**
+     * State of the search started from one end.
+     */
+    private final class Search {
+        private final int[] depths = new int[names.length];
+        private final int[] parents = new int[names.length];
+        private List<Integer> frontier;
+
+        private Search(final int start) {
+            Arrays.fill(depths, -1);
+            Arrays.fill(parents, -1);
+            depths[start] = 0;
+            frontier = new ArrayList<>(List.of(start));
+        }
+    }
+
+    /**
+     * @return number of actors in the graph
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return number of co-star links (every link is stored twice)
+     */
+    public int edges() {
+        return targets.length / 2;
+    }
+
+    /**
+     * @return bytes used by the adjacency arrays
+     */
+    public long memoryBytes() {
+        return (long) BYTES_PER_INT * (offsets.length + targets.length + weights.length);
+    }
+}
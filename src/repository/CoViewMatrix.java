@@ -0,0 +1,233 @@
+package repository;
+
+import user.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Item-item co-view neighbours: for every title, the K titles watched by the
+ * most users that also watched it (the neighbours), with these numbers.
+ * <p>
+ * The full matrix is never stored: the viewers of every title are kept, and
+ * the neighbours of a title are found by counting the titles watched by its
+ * viewers, one title at a time, on a fork-join pool (every task counts the
+ * rows of a slice of the titles). The lists are then kept up to date on every
+ * first view of a title by a user: since the counts only grow, a title that
+ * is already a neighbour only moves up, and any other title can only replace
+ * the last neighbour; its count is computed from the viewers when needed.
+ */
+public final class CoViewMatrix {
+    /**
+     * Number of neighbours kept for every title
+     */
+    public static final int NEIGHBOURS = 20;
+
+    /**
+     * Number of titles counted by a single fork-join task
+     */
+    private static final int TITLES_PER_TASK = 64;
+
+    private final Map<String, List<User>> viewers;
+    private final Map<String, Map<String, Integer>> counts;
+    private final Map<String, List<String>> neighbours;
+
+    /**
+     * Finds the neighbours of every title from the histories of the users.
+     * @param users all the users from the database
+     */
+    public CoViewMatrix(final List<User> users) {
+        viewers = new HashMap<>();
+        for (User user : users) {
+            for (String title : user.getHistory().keySet()) {
+                viewers.computeIfAbsent(title, x -> new ArrayList<>()).add(user);
+            }
+        }
+
+        counts = ForkJoinPool.commonPool().invoke(new CountTask(viewers,
+                new ArrayList<>(viewers.keySet()), 0, viewers.size()));
+        neighbours = new HashMap<>();
+        counts.forEach((title, row) -> {
+            List<String> sorted = new ArrayList<>(row.keySet());
+            sorted.sort((o1, o2) -> compare(row, o1, o2));
+            neighbours.put(title, sorted);
+        });
+    }
+
+    /**
+     * Must be called after a user watched a title for the first time
+     * (the title is already in the history of the user).
+     * @param user user that watched the title
+     * @param title watched title
+     */
+    public void registerFirstView(final User user, final String title) {
+        viewers.computeIfAbsent(title, x -> new ArrayList<>()).add(user);
+        for (String other : user.getHistory().keySet()) {
+            if (!other.equals(title)) {
+                increment(title, other);
+                increment(other, title);
+            }
+        }
+    }
+
+    /**
+     * @param title a title
+     * @return the titles most often watched together with the given one,
+     *         from the most frequent one (the ties are sorted by title)
+     */
+    public List<String> getNeighbours(final String title) {
+        return Collections.unmodifiableList(neighbours.getOrDefault(title, List.of()));
+    }
+
+    /**
+     * @param title a title
+     * @param other another title
+     * @return number of users that watched both titles (read from the
+     *         neighbour list, or counted from the viewers of the titles)
+     */
+    public int getCount(final String title, final String other) {
+        Map<String, Integer> row = counts.get(title);
+        Integer count = (row != null) ? row.get(other) : null;
+        return (count != null) ? count : countTogether(title, other);
+    }
+
+    private void increment(final String title, final String other) {
+        Map<String, Integer> row = counts.computeIfAbsent(title, x -> new HashMap<>());
+        List<String> list = neighbours.computeIfAbsent(title, x -> new ArrayList<>());
+
+        /**
+         * The count of "other" only grew, so it can only move up in the
+         * neighbour list, or replace the last neighbour.
+         */
+        Integer count = row.get(other);
+        int position;
+        if (count != null) {
+            row.put(other, count + 1);
+            position = list.indexOf(other);
+        } else {
+            if (list.size() == NEIGHBOURS) {
+                String last = list.get(NEIGHBOURS - 1);
+                /**
+                 * Nobody watched both titles more often than either of them
+                 * was watched, so most titles are rejected without counting.
+                 */
+                int bound = Math.min(viewersOf(title), viewersOf(other));
+                if (bound < row.get(last)) {
+                    return;
+                }
+                row.put(other, countTogether(title, other));
+                if (compare(row, other, last) > 0) {
+                    row.remove(other);
+                    return;
+                }
+                list.remove(NEIGHBOURS - 1);
+                row.remove(last);
+            } else {
+                row.put(other, countTogether(title, other));
+            }
+            position = list.size();
+            list.add(other);
+        }
+        while (position > 0 && compare(row, list.get(position), list.get(position - 1)) < 0) {
+            Collections.swap(list, position, position - 1);
+            position--;
+        }
+    }
+
+    private int viewersOf(final String title) {
+        return viewers.getOrDefault(title, List.of()).size();
+    }
+
+    /**
+     * Counts the users that watched both titles, by checking the histories
+     * of the viewers of the least viewed one.
+     */
+    private int countTogether(final String title, final String other) {
+        List<User> first = viewers.getOrDefault(title, List.of());
+        List<User> second = viewers.getOrDefault(other, List.of());
+        List<User> smaller = (first.size() <= second.size()) ? first : second;
+        String target = (smaller == first) ? other : title;
+
+        int count = 0;
+        for (User user : smaller) {
+            if (user.getHistory().containsKey(target)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Neighbour order: by count (descending), then by title.
+     */
+    private static int compare(final Map<String, Integer> row, final String o1,
+                               final String o2) {
+        int byCount = Integer.compare(row.get(o2), row.get(o1));
+        return (byCount != 0) ? byCount : o1.compareTo(o2);
+    }
+
+    /**
+     * Counts the rows of a slice of the titles (the number of viewers of
+     * every title that also watched each other title) and keeps only the
+     * counts of the neighbours of every row.
+     */
+    private static final class CountTask
+            extends RecursiveTask<Map<String, Map<String, Integer>>> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Map<String, List<User>> viewers;
+        private final transient List<String> titles;
+        private final int from;
+        private final int to;
+
+        private CountTask(final Map<String, List<User>> viewers, final List<String> titles,
+                          final int from, final int to) {
+            this.viewers = viewers;
+            this.titles = titles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, Map<String, Integer>> compute() {
+            if (to - from > TITLES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                CountTask left = new CountTask(viewers, titles, from, middle);
+                left.fork();
+                Map<String, Map<String, Integer>> right =
+                        new CountTask(viewers, titles, middle, to).compute();
+                right.putAll(left.join());
+                return right;
+            }
+
+            Map<String, Map<String, Integer>> partial = new HashMap<>();
+            for (String title : titles.subList(from, to)) {
+                Map<String, Integer> row = new HashMap<>();
+                for (User user : viewers.get(title)) {
+                    for (String other : user.getHistory().keySet()) {
+                        if (!other.equals(title)) {
+                            row.merge(other, 1, Integer::sum);
+                        }
+                    }
+                }
+
+                /**
+                 * The row is dropped as soon as its neighbours are known.
+                 */
+                List<String> sorted = new ArrayList<>(row.keySet());
+                sorted.sort((o1, o2) -> compare(row, o1, o2));
+                Map<String, Integer> kept = new HashMap<>();
+                for (String other : sorted.subList(0, Math.min(sorted.size(), NEIGHBOURS))) {
+                    kept.put(other, row.get(other));
+                }
+                partial.put(title, kept);
+            }
+            return partial;
+        }
+    }
+}
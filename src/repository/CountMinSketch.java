@@ -0,0 +1,78 @@
+package repository;
+
+/**
+ * Count-Min sketch over strings: depth rows of width counters, every key
+ * being counted in one counter of every row. The estimate of a key (the
+ * smallest of its counters) is never below the real count and, with
+ * probability 1 - delta, exceeds it by at most epsilon * total, where the
+ * width is e / epsilon and the depth is ln(1 / delta).
+ * <p>
+ * The memory used depends only on epsilon and delta, not on the number
+ * of keys or on the counts.
+ */
+public final class CountMinSketch {
+    private final int width;
+    private final long[][] counters;
+    private long total;
+
+    /**
+     * @param epsilon maximum overestimate, as a fraction of the total count
+     * @param delta probability of exceeding the maximum overestimate
+     */
+    public CountMinSketch(final double epsilon, final double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be between 0 and 1");
+        }
+        width = (int) Math.ceil(Math.E / epsilon);
+        counters = new long[(int) Math.ceil(Math.log(1 / delta))][width];
+    }
+
+    /**
+     * Adds a number of occurrences of a key.
+     * @param key counted key
+     * @param count number of occurrences
+     * @return the new estimate of the key
+     */
+    public long add(final String key, final long count) {
+        long hash = Hashing.hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            int column = column(hash, row);
+            counters[row][column] += count;
+            estimate = Math.min(estimate, counters[row][column]);
+        }
+        total += count;
+        return estimate;
+    }
+
+    /**
+     * @param key a key
+     * @return estimated number of occurrences of the key
+     */
+    public long estimate(final String key) {
+        long hash = Hashing.hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            estimate = Math.min(estimate, counters[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return total number of occurrences added
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return bytes used by the counters
+     */
+    public long memoryBytes() {
+        return (long) counters.length * width * Long.BYTES;
+    }
+
+    private int column(final long hash, final int row) {
+        return (int) Long.remainderUnsigned(Hashing.mix(hash + row), width);
+    }
+}
@@ -0,0 +1,129 @@
+package repository;
+
+import entertainment.Genre;
+import entertainment.Video;
+import user.User;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps, for every user, how much the user likes every Genre: each view of
+ * a video adds VIEW_WEIGHT to the genres of the video, and each rating adds
+ * RATING_WEIGHT for every point the grade is above NEUTRAL_GRADE (or removes
+ * it, for the grades below it).
+ * <p>
+ * The vectors are built from the histories when the database is loaded and
+ * then updated by every view and rating; the sum of the absolute weights is
+ * recomputed with them (there is one weight per Genre), so the normalized
+ * affinity of a user for a video is computed without reading the whole
+ * vector, and never leaves [-1, 1]. The ratings below NEUTRAL_GRADE remove
+ * weight, so a weight that cancels out up to rounding is set to 0 exactly.
+ */
+public final class GenreAffinity {
+    /**
+     * Weight added to the genres of a video by a view
+     */
+    public static final double VIEW_WEIGHT = 1.0;
+    /**
+     * Weight added to the genres of a video by every grade point of a rating
+     * above NEUTRAL_GRADE
+     */
+    public static final double RATING_WEIGHT = 0.5;
+    /**
+     * Grade that does not change the affinity
+     */
+    public static final double NEUTRAL_GRADE = 5.0;
+    /**
+     * Weights closer to 0 than this are rounding residues
+     */
+    private static final double EPSILON = 1e-9;
+
+    private final Map<User, Vector> vectors;
+
+    /**
+     * @param users all the users
+     * @param videosByTitle videos of every title
+     */
+    public GenreAffinity(final List<User> users, final Map<String, List<Video>> videosByTitle) {
+        vectors = new HashMap<>();
+        for (User user : users) {
+            Vector vector = new Vector();
+            user.getHistory().forEach((title, count) -> {
+                for (Video video : videosByTitle.getOrDefault(title, List.of())) {
+                    vector.add(video.getGenresMask(), count * VIEW_WEIGHT);
+                }
+            });
+            vectors.put(user, vector);
+        }
+    }
+
+    /**
+     * Must be called after a user watched a video.
+     * @param user user that watched the video
+     * @param video viewed video
+     */
+    public void registerView(final User user, final Video video) {
+        vectors.computeIfAbsent(user, x -> new Vector()).add(video.getGenresMask(), VIEW_WEIGHT);
+    }
+
+    /**
+     * Must be called after a user rated a video.
+     * @param user user that gave the rating
+     * @param video rated video
+     * @param grade value of the rating
+     */
+    public void registerRating(final User user, final Video video, final double grade) {
+        vectors.computeIfAbsent(user, x -> new Vector()).add(video.getGenresMask(),
+                (grade - NEUTRAL_GRADE) * RATING_WEIGHT);
+    }
+
+    /**
+     * @param user a user
+     * @param video a video
+     * @return the share of the user's affinity that goes to the genres of the
+     *         video, between -1 and 1 (0 for a user without views or ratings)
+     */
+    public double affinity(final User user, final Video video) {
+        Vector vector = vectors.get(user);
+        if (vector == null || vector.norm == 0) {
+            return 0;
+        }
+
+        double sum = 0;
+        for (int mask = video.getGenresMask(); mask != 0; mask &= mask - 1) {
+            sum += vector.weights[Integer.numberOfTrailingZeros(mask)];
+        }
+        return sum / vector.norm;
+    }
+
+    /**
+     * Affinity of a user for every genre.
+     */
+    private static final class Vector {
+        private final double[] weights = new double[Genre.values().length];
+        /**
+         * Sum of the absolute values of the weights
+         */
+        private double norm;
+
+        private void add(final int genres, final double weight) {
+            for (int mask = genres; mask != 0; mask &= mask - 1) {
+                int genre = Integer.numberOfTrailingZeros(mask);
+                weights[genre] += weight;
+                if (Math.abs(weights[genre]) < EPSILON) {
+                    weights[genre] = 0;
+                }
+            }
+
+            /**
+             * A running sum would drift with the rounding of every update.
+             */
+            norm = 0;
+            for (double genreWeight : weights) {
+                norm += Math.abs(genreWeight);
+            }
+        }
+    }
+}
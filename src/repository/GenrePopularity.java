@@ -0,0 +1,89 @@
+package repository;
+
+import entertainment.Video;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Ranks the genres by their popularity (the total number of views of
+ * the videos that have the genre) and keeps the videos of every genre
+ * in database order.
+ * <p>
+ * The genres with the same number of views are ranked in the order they
+ * first appear in the database. A view moves only the genres of the viewed
+ * video, so the ranking is never recomputed from scratch.
+ */
+public final class GenrePopularity {
+    private final Map<String, List<Video>> buckets;
+    private final Map<String, Integer> firstAppearance;
+    private final Map<String, Long> totals;
+    private final TreeSet<String> ranking;
+
+    /**
+     * @param videos all the videos, in database order
+     * @param views total number of views for every title
+     */
+    public GenrePopularity(final List<Video> videos, final Map<String, Integer> views) {
+        buckets = new HashMap<>();
+        firstAppearance = new HashMap<>();
+        totals = new HashMap<>();
+
+        for (Video video : videos) {
+            for (String genre : distinctGenres(video)) {
+                firstAppearance.putIfAbsent(genre, firstAppearance.size());
+                buckets.computeIfAbsent(genre, x -> new ArrayList<>()).add(video);
+                totals.merge(genre, (long) views.getOrDefault(video.getTitle(), 0), Long::sum);
+            }
+        }
+
+        ranking = new TreeSet<>(Comparator.comparing((String x) -> totals.get(x)).reversed()
+                .thenComparing(firstAppearance::get));
+        ranking.addAll(buckets.keySet());
+    }
+
+    /**
+     * Must be called after a user watched a video.
+     * @param video viewed video
+     */
+    public void registerView(final Video video) {
+        for (String genre : distinctGenres(video)) {
+            ranking.remove(genre);
+            totals.merge(genre, 1L, Long::sum);
+            ranking.add(genre);
+        }
+    }
+
+    /**
+     * @return iterator over the genres, from the most popular one
+     */
+    public Iterator<String> iterator() {
+        return ranking.iterator();
+    }
+
+    /**
+     * @param genre a genre from the ranking
+     * @return the videos that have the genre, in database order
+     */
+    public List<Video> getVideos(final String genre) {
+        return buckets.getOrDefault(genre, List.of());
+    }
+
+    /**
+     * @param genre a genre from the ranking
+     * @return the total number of views of the genre
+     */
+    public long getViews(final String genre) {
+        return totals.getOrDefault(genre, 0L);
+    }
+
+    private static Iterable<String> distinctGenres(final Video video) {
+        return new LinkedHashSet<>(video.getGenres());
+    }
+}
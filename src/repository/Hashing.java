@@ -0,0 +1,46 @@
+package repository;
+
+/**
+ * 64-bit hashes for the sketches and the similarity index.
+ */
+final class Hashing {
+    private static final long SEED = 1125899906842597L;
+    private static final long PRIME = 31;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final long MIX1 = 0xBF58476D1CE4E5B9L;
+    private static final long MIX2 = 0x94D049BB133111EBL;
+    private static final int SHIFT1 = 30;
+    private static final int SHIFT2 = 27;
+    private static final int SHIFT3 = 31;
+
+    /**
+     * for coding style
+     */
+    private Hashing() {
+    }
+
+    /**
+     * @param key a string
+     * @return well mixed 64-bit hash of the string
+     */
+    static long hash(final String key) {
+        long hash = SEED;
+        for (int i = 0; i < key.length(); i++) {
+            hash = PRIME * hash + key.charAt(i);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * SplitMix64 finalizer: every bit of the result depends on every bit
+     * of the input.
+     * @param value a number
+     * @return the mixed number
+     */
+    static long mix(final long value) {
+        long x = value + GOLDEN;
+        x = (x ^ (x >>> SHIFT1)) * MIX1;
+        x = (x ^ (x >>> SHIFT2)) * MIX2;
+        return x ^ (x >>> SHIFT3);
+    }
+}
@@ -0,0 +1,101 @@
+package repository;
+
+/**
+ * HyperLogLog counter of distinct strings: 2^precision registers of one
+ * byte, every one keeping the longest run of leading zeros seen in the
+ * hashes routed to it. The standard error of the estimate is about
+ * 1.04 / sqrt(2^precision), whatever the number of strings added.
+ * <p>
+ * The estimate is cached until a register changes, which becomes rare
+ * once the counter saw many strings.
+ */
+public final class HyperLogLog {
+    /**
+     * Smallest supported precision
+     */
+    public static final int MIN_PRECISION = 7;
+    /**
+     * Biggest supported precision
+     */
+    public static final int MAX_PRECISION = 16;
+
+    private static final double ALPHA = 0.7213;
+    private static final double ALPHA_CORRECTION = 1.079;
+    private static final double SMALL_RANGE = 2.5;
+    private static final double STANDARD_ERROR = 1.04;
+
+    private final int precision;
+    private final byte[] registers;
+    private double estimate;
+    private boolean stale;
+
+    /**
+     * @param precision log2 of the number of registers
+     */
+    public HyperLogLog(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION
+                    + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * @param value added string
+     */
+    public void add(final String value) {
+        long hash = Hashing.hash(value);
+        int register = (int) (hash >>> (Long.SIZE - precision));
+        /**
+         * The bit set after the shifted hash bounds the run of zeros.
+         */
+        int rank = Long.numberOfLeadingZeros((hash << precision)
+                | (1L << (precision - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+            stale = true;
+        }
+    }
+
+    /**
+     * @return estimated number of distinct strings added
+     */
+    public long estimate() {
+        if (stale) {
+            int m = registers.length;
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += Math.scalb(1.0, -register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            estimate = ALPHA / (1 + ALPHA_CORRECTION / m) * m * m / sum;
+            if (estimate <= SMALL_RANGE * m && zeros > 0) {
+                /**
+                 * Linear counting is more precise for the small cardinalities.
+                 */
+                estimate = m * Math.log((double) m / zeros);
+            }
+            stale = false;
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @param precision log2 of the number of registers
+     * @return relative standard error of the estimates
+     */
+    public static double standardError(final int precision) {
+        return STANDARD_ERROR / Math.sqrt(1 << precision);
+    }
+
+    /**
+     * @return bytes used by the registers
+     */
+    public int memoryBytes() {
+        return registers.length;
+    }
+}
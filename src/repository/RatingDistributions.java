@@ -0,0 +1,83 @@
+package repository;
+
+import entertainment.Movie;
+import entertainment.Season;
+import entertainment.Serial;
+import entertainment.Video;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rating histograms of every movie, of every season and of every serial (the
+ * sum of the histograms of its seasons), built from the ratings found when
+ * the database is loaded and then updated by every rating in O(1).
+ */
+public final class RatingDistributions {
+    private final Map<Video, RatingHistogram> videos;
+    private final Map<Serial, List<RatingHistogram>> seasons;
+
+    /**
+     * @param movies all the movies
+     * @param serials all the serials
+     */
+    public RatingDistributions(final List<Movie> movies, final List<Serial> serials) {
+        videos = new HashMap<>();
+        seasons = new HashMap<>();
+
+        for (Movie movie : movies) {
+            RatingHistogram histogram = new RatingHistogram();
+            movie.getRatings().forEach(histogram::add);
+            videos.put(movie, histogram);
+        }
+        for (Serial serial : serials) {
+            RatingHistogram total = new RatingHistogram();
+            List<RatingHistogram> histograms = new ArrayList<>();
+            for (Season season : serial.getSeasons()) {
+                RatingHistogram histogram = new RatingHistogram();
+                season.getRatings().forEach(histogram::add);
+                total.addAll(histogram);
+                histograms.add(histogram);
+            }
+            videos.put(serial, total);
+            seasons.put(serial, histograms);
+        }
+    }
+
+    /**
+     * Must be called after a user rated a video.
+     * @param video rated video
+     * @param seasonNumber rated season (0 for movies)
+     * @param grade value of the rating
+     */
+    public void registerRating(final Video video, final int seasonNumber, final double grade) {
+        RatingHistogram histogram = videos.get(video);
+        if (histogram != null) {
+            histogram.add(grade);
+        }
+        if (video instanceof Serial && seasons.containsKey(video)
+                && seasonNumber >= 1 && seasonNumber <= seasons.get(video).size()) {
+            seasons.get(video).get(seasonNumber - 1).add(grade);
+        }
+    }
+
+    /**
+     * @param video a video from the database
+     * @return the histogram of all the ratings of the video
+     *         (of all its seasons, for a serial)
+     */
+    public RatingHistogram getHistogram(final Video video) {
+        return videos.get(video);
+    }
+
+    /**
+     * @param serial a serial from the database
+     * @param seasonNumber number of a season (from 1)
+     * @return the histogram of the ratings of the season
+     */
+    public RatingHistogram getHistogram(final Serial serial, final int seasonNumber) {
+        return seasons.get(serial).get(seasonNumber - 1);
+    }
+}
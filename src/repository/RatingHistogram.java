@@ -0,0 +1,105 @@
+package repository;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of the ratings of a video (or of a season) in fixed buckets
+ * of half a point between MIN_GRADE and MAX_GRADE, with the sum and the sum
+ * of the squares of the grades, so the memory stays the same however many
+ * ratings are added. The grades outside the range are counted in the first
+ * / last bucket; the quantiles are exact for the grades that are multiples
+ * of half a point (all the grades given in the tests are integers).
+ */
+public final class RatingHistogram {
+    /**
+     * Smallest grade that has its own bucket
+     */
+    public static final double MIN_GRADE = 0;
+    /**
+     * Biggest grade that has its own bucket
+     */
+    public static final double MAX_GRADE = 10;
+    /**
+     * Buckets per grade point
+     */
+    public static final int BUCKETS_PER_POINT = 2;
+
+    private static final int BUCKETS = (int) ((MAX_GRADE - MIN_GRADE) * BUCKETS_PER_POINT) + 1;
+
+    private final int[] counts = new int[BUCKETS];
+    private int count;
+    private double sum;
+    private double sumOfSquares;
+
+    /**
+     * @param grade value of a rating
+     */
+    public void add(final double grade) {
+        int bucket = (int) Math.round((grade - MIN_GRADE) * BUCKETS_PER_POINT);
+        counts[Math.max(0, Math.min(BUCKETS - 1, bucket))]++;
+        count++;
+        sum += grade;
+        sumOfSquares += grade * grade;
+    }
+
+    /**
+     * Adds all the ratings of another histogram (e.g. of a season to the
+     * histogram of its serial).
+     * @param other another histogram
+     */
+    public void addAll(final RatingHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+    }
+
+    /**
+     * @return number of ratings
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return average grade (0 if there are no ratings)
+     */
+    public double mean() {
+        return (count == 0) ? 0 : sum / count;
+    }
+
+    /**
+     * @return population variance of the grades (0 if there are no ratings)
+     */
+    public double variance() {
+        if (count == 0) {
+            return 0;
+        }
+        double mean = mean();
+        return Math.max(0, sumOfSquares / count - mean * mean);
+    }
+
+    /**
+     * @param fraction a number between 0 and 1 (0.5 for the median)
+     * @return the smallest bucket grade with at least that fraction of the
+     *         ratings at or below it (nearest rank); 0 if there are no ratings
+     */
+    public double quantile(final double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return MIN_GRADE + (double) i / BUCKETS_PER_POINT;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(counts);
+    }
+}
@@ -1,6 +1,7 @@
 package repository;
 
 import actor.Actor;
+import actor.ActorsAwards;
 import entertainment.Movie;
 import entertainment.Serial;
 import entertainment.Video;
@@ -13,7 +14,13 @@ import fileio.SerialInputData;
 import user.User;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +32,109 @@ public final class Repository {
     private List<User> users;
     private List<Movie> movies;
     private List<Serial> serials;
+    /**
+     * Version of every part of the database that can be modified
+     * (the counters are never reset, not even when a new input is loaded).
+     */
+    private final Map<VersionCounter, Long> versions;
+    /**
+     * Movies and serials, in database order
+     */
+    private List<Video> videos;
+    /**
+     * Position of every video in the database order
+     * (the movies first, then the serials).
+     */
+    private Map<Video, Integer> positions;
+    /**
+     * Movies and serials, sorted by their average rating in descending
+     * order; the videos with the same rating are kept in database order.
+     */
+    private VideoIndex bestRated;
+    /**
+     * First unseen video of every user, in database order
+     */
+    private UnseenCursors unseenCursors;
+    /**
+     * Total number of views of every title, from all the users' histories
+     */
+    private Map<String, Integer> views;
+    /**
+     * Decayed number of views of every title
+     */
+    private TrendingScores trending;
+    /**
+     * Number of users that watched every pair of titles
+     */
+    private CoViewMatrix coViews;
+    /**
+     * Actors linked by the titles they played in together
+     */
+    private CoStarGraph coStars;
+    /**
+     * Titles and actor names, for the prefix and substring searches
+     */
+    private TextIndex names;
+    /**
+     * Affinity of every user for every genre, from views and ratings
+     */
+    private GenreAffinity affinities;
+    /**
+     * Approximate view statistics (null until they are first needed)
+     */
+    private ViewSketches sketches;
+    /**
+     * Error bounds of the approximate view statistics (the last configured ones)
+     */
+    private double sketchEpsilon = ViewSketches.DEFAULT_EPSILON;
+    private double sketchDelta = ViewSketches.DEFAULT_DELTA;
+    private int sketchPrecision = ViewSketches.DEFAULT_PRECISION;
+    private int sketchHeavyHitters = ViewSketches.DEFAULT_HEAVY_HITTERS;
+    /**
+     * Rating histograms of every video and season
+     */
+    private RatingDistributions distributions;
+    /**
+     * Aggregates of the videos by genre and year
+     */
+    private AggregateCube cube;
+    /**
+     * Videos most similar to every video, by cast and genres
+     */
+    private SimilarityIndex similarity;
+    /**
+     * Genres ranked by their number of views
+     */
+    private GenrePopularity genrePopularity;
+    /**
+     * Videos of every genre, sorted by their average rating (ascending),
+     * the ties being sorted by title and then kept in database order
+     */
+    private Map<String, VideoIndex> ratingsByGenre;
+    /**
+     * Videos that have the same title, in database order
+     */
+    private Map<String, List<Video>> videosByTitle;
+    /**
+     * Actors that won every award, in database order
+     */
+    private Map<ActorsAwards, List<Actor>> actorsByAward;
+    /**
+     * Users by their username
+     */
+    private Map<String, User> usersByName;
+    /**
+     * Users sorted by the number of ratings they gave
+     */
+    private UserActivityIndex userActivity;
+    /**
+     * Sorted indexes for the movie queries
+     */
+    private CatalogIndexes movieIndexes;
+    /**
+     * Sorted indexes for the serial queries
+     */
+    private CatalogIndexes serialIndexes;
 
     private static Repository instance = null;
 
@@ -33,6 +143,10 @@ public final class Repository {
         this.users = new ArrayList<>();
         this.movies = new ArrayList<>();
         this.serials = new ArrayList<>();
+        this.versions = new EnumMap<>(VersionCounter.class);
+        for (VersionCounter counter : VersionCounter.values()) {
+            this.versions.put(counter, 0L);
+        }
     }
 
     /**
@@ -102,6 +216,8 @@ public final class Repository {
                             x.getNumberSeason(), x.getSeasons(), x.getYear()))
                     .collect(Collectors.toList());
         }
+        instance.buildIndexes();
+        instance.increment(VersionCounter.CATALOG);
 
         return instance;
     }
@@ -116,8 +232,7 @@ public final class Repository {
      *         null, otherwise
      */
     public User findUser(final String username) {
-        return getInstance().users.stream().filter(x -> x.getUsername().equals(username))
-                .findAny().orElse(null);
+        return getInstance().usersByName.get(username);
     }
 
     /**
@@ -128,15 +243,336 @@ public final class Repository {
      *         null, otherwise
      */
     public Video findVideo(final String title) {
-        Video target = getInstance().movies.stream().filter(x -> x.getTitle().equals(title))
-                .findAny().orElse(null);
+        List<Video> targets = getInstance().videosByTitle.get(title);
+        return (targets != null) ? targets.get(0) : null;
+    }
+
+    /**
+     * Must be called after a user watched a video.
+     * @param user user that watched the video
+     * @param title title of the video
+     * @param time clock of the view (the id of the action)
+     */
+    public void registerView(final User user, final String title, final long time) {
+        user.incrementVersion();
+        unseenCursors.registerView(user, title);
+        int viewCount = views.merge(title, 1, Integer::sum);
+        trending.advance(time);
+        double trendingScore = trending.registerView(title);
+        if (sketches != null) {
+            sketches.registerView(user, title);
+        }
+        if (user.getHistory().get(title) == 1) {
+            coViews.registerFirstView(user, title);
+        }
+        for (Video video : videosByTitle.getOrDefault(title, List.of())) {
+            genrePopularity.registerView(video);
+            affinities.registerView(user, video);
+            cube.registerView(video);
+            indexesOf(video).registerView(video, viewCount, trendingScore);
+            names.updateScore(kindOf(video), title, viewCount);
+        }
+        increment(VersionCounter.VIEWS);
+    }
+
+    /**
+     * Must be called after a video was added to a favorites list.
+     * @param user owner of the favorites list
+     * @param title title of the video
+     */
+    public void registerFavorite(final User user, final String title) {
+        for (Video video : videosByTitle.getOrDefault(title, List.of())) {
+            cube.registerFavorite(video);
+        }
+        increment(VersionCounter.FAVORITES);
+    }
+
+    /**
+     * Must be called after a user rated a video.
+     * @param user user that gave the rating
+     * @param video rated video
+     * @param seasonNumber rated season (0 for movies)
+     * @param grade value of the rating
+     */
+    public void registerRating(final User user, final Video video, final int seasonNumber,
+                               final double grade) {
+        bestRated.update(video, video.getAverageRating());
+        for (String genre : video.getGenres()) {
+            ratingsByGenre.get(genre).update(video, video.getAverageRating());
+        }
+        indexesOf(video).registerRating(video);
+        userActivity.registerRating(user);
+        affinities.registerRating(user, video, grade);
+        distributions.registerRating(video, seasonNumber, grade);
+        cube.registerRating(video, grade);
+        increment(VersionCounter.RATINGS);
+    }
+
+    /**
+     * Computes the data derived from the loaded entities.
+     */
+    private void buildIndexes() {
+        List<Video> catalog = new ArrayList<>(movies.size() + serials.size());
+        catalog.addAll(movies);
+        catalog.addAll(serials);
+        videos = Collections.unmodifiableList(catalog);
+
+        positions = new HashMap<>();
+        videosByTitle = new HashMap<>();
+        for (Video video : videos) {
+            positions.put(video, positions.size());
+            videosByTitle.computeIfAbsent(video.getTitle(), x -> new ArrayList<>()).add(video);
+        }
+        bestRated = new VideoIndex(videos, Video::getAverageRating, true,
+                Comparator.comparing(positions::get));
+        unseenCursors = new UnseenCursors(videos);
+        /**
+         * The sketches describe the previous histories; they are rebuilt
+         * (with the same error bounds) when they are needed again.
+         */
+        sketches = null;
+        distributions = new RatingDistributions(movies, serials);
+        similarity = new SimilarityIndex(videos, positions);
+        coStars = new CoStarGraph(actors, videos);
+
+        Map<String, List<Video>> videosByGenre = new HashMap<>();
+        for (Video video : videos) {
+            for (String genre : new LinkedHashSet<>(video.getGenres())) {
+                videosByGenre.computeIfAbsent(genre, x -> new ArrayList<>()).add(video);
+            }
+        }
+        ratingsByGenre = new HashMap<>();
+        Comparator<Video> byTitle = Comparator.comparing(Video::getTitle)
+                .thenComparing(positions::get);
+        videosByGenre.forEach((genre, list) -> ratingsByGenre.put(genre,
+                new VideoIndex(list, Video::getAverageRating, false, byTitle)));
+
+        actorsByAward = new EnumMap<>(ActorsAwards.class);
+        for (ActorsAwards award : ActorsAwards.values()) {
+            actorsByAward.put(award, new ArrayList<>());
+        }
+        for (Actor actor : actors) {
+            for (ActorsAwards award : actor.getAwards().keySet()) {
+                if (award != null) {
+                    actorsByAward.get(award).add(actor);
+                }
+            }
+        }
+
+        usersByName = new HashMap<>();
+        for (User user : users) {
+            usersByName.putIfAbsent(user.getUsername(), user);
+        }
+        userActivity = new UserActivityIndex(users);
+
+        views = new HashMap<>();
+        for (User user : users) {
+            user.getHistory().forEach((title, count) -> views.merge(title, count, Integer::sum));
+        }
+        genrePopularity = new GenrePopularity(videos, views);
+        coViews = new CoViewMatrix(users);
+        affinities = new GenreAffinity(users, videosByTitle);
+        cube = new AggregateCube(videos, views, users, videosByTitle);
+        trending = new TrendingScores(views);
+        movieIndexes = new CatalogIndexes(movies, views, trending, positions);
+        serialIndexes = new CatalogIndexes(serials, views, trending, positions);
+
+        names = new TextIndex();
+        for (Video video : videos) {
+            names.add(kindOf(video), video.getTitle(), views.getOrDefault(video.getTitle(), 0));
+        }
+        for (Actor actor : actors) {
+            names.add(TextIndex.Kind.ACTOR, actor.getName(), actor.getTotalAwards());
+        }
+    }
+
+    private CatalogIndexes indexesOf(final Video video) {
+        return (video instanceof Movie) ? movieIndexes : serialIndexes;
+    }
+
+    private static TextIndex.Kind kindOf(final Video video) {
+        return (video instanceof Movie) ? TextIndex.Kind.MOVIE : TextIndex.Kind.SHOW;
+    }
+
+    /**
+     * @return all the videos from the database, in database order
+     *         (read-only list)
+     */
+    public List<Video> getVideos() {
+        return videos;
+    }
+
+    /**
+     * @param video a video from the database
+     * @return the position of the video in the database order
+     */
+    public int getPosition(final Video video) {
+        return positions.get(video);
+    }
+
+    /**
+     * @return the videos sorted by their average rating (descending),
+     *         the ties being kept in database order
+     */
+    public VideoIndex getBestRated() {
+        return bestRated;
+    }
+
+    /**
+     * @param title title of a video
+     * @return the total number of views of the video (from all the users)
+     */
+    public int getViews(final String title) {
+        return views.getOrDefault(title, 0);
+    }
+
+    /**
+     * @param genre name of a genre
+     * @return the videos that have the genre, sorted by their average rating
+     *         (ascending) and then by title; null, if no video has the genre
+     */
+    public VideoIndex getRatingsByGenre(final String genre) {
+        return ratingsByGenre.get(genre);
+    }
+
+    /**
+     * @return sorted indexes over the movies
+     */
+    public CatalogIndexes getMovieIndexes() {
+        return movieIndexes;
+    }
+
+    /**
+     * @return sorted indexes over the serials
+     */
+    public CatalogIndexes getSerialIndexes() {
+        return serialIndexes;
+    }
+
+    /**
+     * @param award an award
+     * @return the actors that won the award, in database order
+     */
+    public List<Actor> getActorsWithAward(final ActorsAwards award) {
+        return Collections.unmodifiableList(actorsByAward.get(award));
+    }
+
+    /**
+     * @return the users that gave at least a rating, sorted by
+     *         their number of ratings
+     */
+    public UserActivityIndex getUserActivity() {
+        return userActivity;
+    }
+
+    /**
+     * @return the actors linked by the titles they played in together
+     */
+    public CoStarGraph getCoStars() {
+        return coStars;
+    }
 
-        if (target == null) {
-            target = getInstance().serials.stream().filter(x -> x.getTitle().equals(title))
-                    .findAny().orElse(null);
+    /**
+     * @return aggregates of the videos by genre and year
+     */
+    public AggregateCube getCube() {
+        return cube;
+    }
+
+    /**
+     * @return rating histograms of every video and season
+     */
+    public RatingDistributions getDistributions() {
+        return distributions;
+    }
+
+    /**
+     * @return approximate view statistics; they are built with the last
+     *         configured error bounds (the default ones, if they were never
+     *         configured) the first time they are needed after a load
+     */
+    public ViewSketches getSketches() {
+        if (sketches == null) {
+            sketches = new ViewSketches(users, videosByTitle.keySet(), sketchEpsilon, sketchDelta,
+                    sketchPrecision, sketchHeavyHitters);
         }
+        return sketches;
+    }
+
+    /**
+     * Rebuilds the approximate view statistics from the current histories,
+     * with the given error bounds (see ViewSketches). The cached results
+     * that used the previous statistics are invalidated.
+     * @param epsilon maximum overestimate of a view count, as a fraction of all the views
+     * @param delta probability of exceeding the maximum overestimate
+     * @param precision log2 of the number of registers of a distinct viewers counter
+     * @param heavyHitters number of most viewed titles kept
+     */
+    public void configureSketches(final double epsilon, final double delta, final int precision,
+                                  final int heavyHitters) {
+        sketchEpsilon = epsilon;
+        sketchDelta = delta;
+        sketchPrecision = precision;
+        sketchHeavyHitters = heavyHitters;
+        sketches = null;
+        getSketches();
+        increment(VersionCounter.VIEWS);
+    }
+
+    /**
+     * @return affinity of every user for every genre
+     */
+    public GenreAffinity getAffinities() {
+        return affinities;
+    }
+
+    /**
+     * @return prefix and substring search over the titles and the actor names
+     */
+    public TextIndex getNames() {
+        return names;
+    }
+
+    /**
+     * @return index of the videos most similar to a video, by cast and genres
+     */
+    public SimilarityIndex getSimilarity() {
+        return similarity;
+    }
+
+    /**
+     * @return number of users that watched every pair of titles
+     */
+    public CoViewMatrix getCoViews() {
+        return coViews;
+    }
+
+    /**
+     * @return the genres ranked by their total number of views
+     */
+    public GenrePopularity getGenrePopularity() {
+        return genrePopularity;
+    }
+
+    /**
+     * @param user a user from the database
+     * @return the first video, in database order, that the user hasn't seen;
+     *         null, if there is no such video
+     */
+    public Video findFirstUnseen(final User user) {
+        return unseenCursors.firstUnseen(user);
+    }
+
+    /**
+     * @param counter part of the database
+     * @return current version of that part
+     */
+    public long getVersion(final VersionCounter counter) {
+        return versions.get(counter);
+    }
 
-        return target;
+    private void increment(final VersionCounter counter) {
+        versions.merge(counter, 1L, Long::sum);
     }
 
     public List<Actor> getActors() {
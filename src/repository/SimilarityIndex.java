@@ -0,0 +1,224 @@
+package repository;
+
+import entertainment.Video;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Finds the videos most similar to a given one, the similarity of two
+ * videos being the Jaccard index of their features (cast members and genres).
+ * <p>
+ * Comparing a video with the whole catalog is avoided with MinHash and
+ * locality-sensitive hashing: at load time, every video gets a signature of
+ * HASHES minimum hashes of its features, and the signature is split in BANDS
+ * bands of ROWS values, every band being a key in a hash table. Two videos
+ * share a band with a probability that grows quickly with their similarity,
+ * so only the videos that share at least a band with the requested one are
+ * candidates; their exact similarity is then computed to rank them.
+ * <p>
+ * The titles have only a few features (1 to 5 in the test databases), so the
+ * similarities of the closest videos are low (two titles with 3 and 4
+ * features that share one have a similarity of 1/6); the bands are short
+ * enough for such pairs to share a band with a probability of about 3/4. A
+ * small catalog is compared exhaustively, and so is the catalog when the
+ * buckets give fewer than the requested number of similar videos.
+ * <p>
+ * The features of a video never change, so the index is static.
+ */
+public final class SimilarityIndex {
+    /**
+     * Number of bands of a signature
+     */
+    public static final int BANDS = 48;
+    /**
+     * Number of hashes in every band
+     */
+    public static final int ROWS = 2;
+    /**
+     * Number of hashes in a signature
+     */
+    public static final int HASHES = BANDS * ROWS;
+    /**
+     * Catalogs of at most this many videos are always compared exhaustively
+     */
+    public static final int EXACT_CATALOG = 500;
+
+    private static final long SEED = 0x5eed;
+    private static final long BAND_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private final List<Video> videos;
+    private final Map<Video, Integer> positions;
+    private final List<Set<String>> features;
+    private final long[] seeds;
+    private final int[][] signatures;
+    private final List<Map<Long, List<Integer>>> buckets;
+
+    /**
+     * Builds the signatures and the buckets of the videos.
+     * @param videos all the videos, in database order
+     * @param positions position of every video in database order
+     */
+    public SimilarityIndex(final List<Video> videos, final Map<Video, Integer> positions) {
+        this.videos = videos;
+        this.positions = positions;
+
+        Random random = new Random(SEED);
+        seeds = new long[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        features = new ArrayList<>(videos.size());
+        signatures = new int[videos.size()][];
+        buckets = new ArrayList<>(BANDS);
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+
+        for (int i = 0; i < videos.size(); i++) {
+            features.add(features(videos.get(i)));
+            signatures[i] = signature(features.get(i));
+            for (int band = 0; band < BANDS; band++) {
+                buckets.get(band).computeIfAbsent(bandKey(signatures[i], band),
+                        x -> new ArrayList<>()).add(i);
+            }
+        }
+    }
+
+    /**
+     * Finds the most similar videos among the ones that share a band with the
+     * given video; a small catalog, or one where the buckets don't give enough
+     * similar videos, is compared exhaustively (see mostSimilarExact()).
+     * @param video a video from the database
+     * @param count maximum number of results
+     * @return the most similar videos (with a positive similarity, other than
+     *         the given one), sorted by similarity and then in database order
+     */
+    public List<Video> mostSimilar(final Video video, final int count) {
+        if (videos.size() <= EXACT_CATALOG) {
+            return mostSimilarExact(video, count);
+        }
+        List<Video> result = mostSimilarApproximate(video, count);
+        return (result.size() < count) ? mostSimilarExact(video, count) : result;
+    }
+
+    /**
+     * Finds the most similar videos only among the ones that share a band
+     * with the given video, whatever the size of the catalog.
+     * @param video a video from the database
+     * @param count maximum number of results
+     * @return the most similar videos (with a positive similarity, other than
+     *         the given one), sorted by similarity and then in database order
+     */
+    public List<Video> mostSimilarApproximate(final Video video, final int count) {
+        int target = positions.get(video);
+        Set<Integer> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            candidates.addAll(buckets.get(band).get(bandKey(signatures[target], band)));
+        }
+        return rank(target, candidates, count);
+    }
+
+    /**
+     * Finds the most similar videos by comparing the given video
+     * with every video from the database.
+     * @param video a video from the database
+     * @param count maximum number of results
+     * @return the most similar videos (with a positive similarity, other than
+     *         the given one), sorted by similarity and then in database order
+     */
+    public List<Video> mostSimilarExact(final Video video, final int count) {
+        List<Integer> candidates = new ArrayList<>(videos.size());
+        for (int i = 0; i < videos.size(); i++) {
+            candidates.add(i);
+        }
+        return rank(positions.get(video), candidates, count);
+    }
+
+    /**
+     * @param first a video from the database
+     * @param second another video from the database
+     * @return Jaccard index of the features of the two videos
+     */
+    public double similarity(final Video first, final Video second) {
+        return jaccard(features.get(positions.get(first)), features.get(positions.get(second)));
+    }
+
+    private List<Video> rank(final int target, final Iterable<Integer> candidates,
+                             final int count) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int candidate : candidates) {
+            if (candidate != target) {
+                double score = jaccard(features.get(target), features.get(candidate));
+                if (score > 0) {
+                    scores.put(candidate, score);
+                }
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>(scores.keySet());
+        ranked.sort(Comparator.comparing((Integer x) -> scores.get(x)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        List<Video> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, ranked.size()); i++) {
+            result.add(videos.get(ranked.get(i)));
+        }
+        return result;
+    }
+
+    private static Set<String> features(final Video video) {
+        Set<String> result = new HashSet<>();
+        /**
+         * The prefixes keep an actor and a genre with the same name apart.
+         */
+        for (String actor : video.getCast()) {
+            result.add("cast:" + actor);
+        }
+        for (String genre : video.getGenres()) {
+            result.add("genre:" + genre);
+        }
+        return result;
+    }
+
+    private int[] signature(final Set<String> videoFeatures) {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String feature : videoFeatures) {
+            long base = feature.hashCode();
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], (int) Hashing.mix(base ^ seeds[i]));
+            }
+        }
+        return signature;
+    }
+
+    private static long bandKey(final int[] signature, final int band) {
+        long key = band;
+        for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+            key = key * BAND_MULTIPLIER + signature[row];
+        }
+        return key;
+    }
+
+    private static double jaccard(final Set<String> first, final Set<String> second) {
+        if (first.isEmpty() && second.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String feature : first) {
+            if (second.contains(feature)) {
+                common++;
+            }
+        }
+        return (double) common / (first.size() + second.size() - common);
+    }
+}
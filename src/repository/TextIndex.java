@@ -0,0 +1,246 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Case-insensitive prefix (autocomplete) and substring search over the
+ * titles of the movies and of the serials and over the names of the actors,
+ * the results being ranked by a score (the number of views of a title, the
+ * number of awards of an actor) and cut to the first K.
+ * <p>
+ * Every name is indexed by its lowercase trigrams, bigrams and single
+ * characters, and by its first one and two characters; the names of every
+ * kind are also kept sorted by score. A search takes the rarest gram of the
+ * text (trigrams for three characters or more, the whole text otherwise, as
+ * a prefix for autocomplete): if its posting list is short, the names from
+ * the list are checked and sorted; otherwise the text is common, so the names
+ * are read in score order until K of them match. That scan is estimated to
+ * read K * names / postings names, which assumes the matches are spread evenly
+ * over the score order; the cheaper plan is chosen, so a search reads about
+ * sqrt(K * names) names at most when that holds, but all the names of the kind
+ * in the worst case (the only matches have the lowest scores).
+ * <p>
+ * Names can be added, and the scores changed, at any time.
+ */
+public final class TextIndex {
+    /**
+     * What a name belongs to
+     */
+    public enum Kind {
+        MOVIE, SHOW, ACTOR
+    }
+
+    /**
+     * Length of the longest indexed grams
+     */
+    private static final int GRAM = 3;
+    private static final int CHAR_BITS = 16;
+    private static final int LENGTH_SHIFT = GRAM * CHAR_BITS;
+    private static final long PREFIX_FLAG = 1L << (LENGTH_SHIFT + CHAR_BITS - 1);
+    private static final int INITIAL_POSTINGS = 4;
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Kind, Map<String, Entry>> byName = new EnumMap<>(Kind.class);
+    private final Map<Kind, TreeSet<Entry>> ranked = new EnumMap<>(Kind.class);
+    private final Map<Long, Postings> grams = new HashMap<>();
+
+    public TextIndex() {
+        for (Kind kind : Kind.values()) {
+            byName.put(kind, new HashMap<>());
+            ranked.put(kind, new TreeSet<>(Comparator.comparingLong((Entry x) -> -x.score)
+                    .thenComparing(x -> x.name).thenComparingInt(x -> x.id)));
+        }
+    }
+
+    /**
+     * Adds a name to the index (does nothing if it is already indexed).
+     * @param kind what the name belongs to
+     * @param name title / name of an actor
+     * @param score initial score of the name
+     */
+    public void add(final Kind kind, final String name, final long score) {
+        if (name == null || byName.get(kind).containsKey(name)) {
+            return;
+        }
+
+        Entry entry = new Entry(entries.size(), kind, name, score);
+        entries.add(entry);
+        byName.get(kind).put(name, entry);
+        ranked.get(kind).add(entry);
+
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= entry.lowercase.length(); i++) {
+                grams.computeIfAbsent(gram(entry.lowercase, i, length), x -> new Postings())
+                        .add(entry.id);
+            }
+            if (length < GRAM && length <= entry.lowercase.length()) {
+                grams.computeIfAbsent(gram(entry.lowercase, 0, length) | PREFIX_FLAG,
+                        x -> new Postings()).add(entry.id);
+            }
+        }
+    }
+
+    /**
+     * Changes the score of an indexed name.
+     * @param kind what the name belongs to
+     * @param name title / name of an actor
+     * @param score new score
+     */
+    public void updateScore(final Kind kind, final String name, final long score) {
+        Entry entry = byName.get(kind).get(name);
+        if (entry != null && entry.score != score) {
+            ranked.get(kind).remove(entry);
+            entry.score = score;
+            ranked.get(kind).add(entry);
+        }
+    }
+
+    /**
+     * @param kind what the names belong to
+     * @param text searched text (case-insensitive)
+     * @param prefix true if the names must start with the text,
+     *               false if they only have to contain it
+     * @param count maximum number of results
+     * @return the matching names with the highest scores, from the highest one
+     *         (the ties are sorted by name)
+     */
+    public List<String> search(final Kind kind, final String text, final boolean prefix,
+                               final int count) {
+        String lowercase = text.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>();
+        if (count <= 0) {
+            return result;
+        }
+
+        Postings rarest = null;
+        int length = Math.min(GRAM, lowercase.length());
+        if (prefix && length > 0 && length < GRAM) {
+            rarest = grams.get(gram(lowercase, 0, length) | PREFIX_FLAG);
+            if (rarest == null) {
+                return result;
+            }
+        } else {
+            for (int i = 0; length > 0 && i + length <= lowercase.length(); i++) {
+                Postings postings = grams.get(gram(lowercase, i, length));
+                if (postings == null) {
+                    return result;
+                }
+                if (rarest == null || postings.size < rarest.size) {
+                    rarest = postings;
+                }
+            }
+        }
+
+        TreeSet<Entry> order = ranked.get(kind);
+        if (rarest != null && (long) rarest.size * rarest.size <= (long) count * order.size()) {
+            /**
+             * Only the best K matches are kept, in a heap whose head is the
+             * worst of them.
+             */
+            Comparator<? super Entry> comparator = order.comparator();
+            PriorityQueue<Entry> best = new PriorityQueue<>(count, comparator.reversed());
+            for (int i = 0; i < rarest.size; i++) {
+                Entry entry = entries.get(rarest.ids[i]);
+                if (entry.kind == kind && entry.matches(lowercase, prefix)) {
+                    if (best.size() < count) {
+                        best.add(entry);
+                    } else if (comparator.compare(entry, best.peek()) < 0) {
+                        best.poll();
+                        best.add(entry);
+                    }
+                }
+            }
+            List<Entry> matches = new ArrayList<>(best);
+            matches.sort(comparator);
+            for (Entry entry : matches) {
+                result.add(entry.name);
+            }
+            return result;
+        }
+
+        Iterator<Entry> iterator = order.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.matches(lowercase, prefix)) {
+                result.add(entry.name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of indexed names
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return key of the gram of the given length that starts at the given
+     *         position: the characters in the low GRAM * CHAR_BITS bits and
+     *         the length right above them, below PREFIX_FLAG (so "a" and
+     *         "\0a" have different keys)
+     */
+    private static long gram(final String text, final int position, final int length) {
+        long key = 0;
+        for (int i = position; i < position + length; i++) {
+            key = (key << CHAR_BITS) | text.charAt(i);
+        }
+        return key | ((long) length << LENGTH_SHIFT);
+    }
+
+    /**
+     * An indexed name.
+     */
+    private static final class Entry {
+        private final int id;
+        private final Kind kind;
+        private final String name;
+        private final String lowercase;
+        private long score;
+
+        private Entry(final int id, final Kind kind, final String name, final long score) {
+            this.id = id;
+            this.kind = kind;
+            this.name = name;
+            this.lowercase = name.toLowerCase(Locale.ROOT);
+            this.score = score;
+        }
+
+        private boolean matches(final String text, final boolean prefix) {
+            return prefix ? lowercase.startsWith(text) : lowercase.contains(text);
+        }
+    }
+
+    /**
+     * Growable list of entry ids.
+     */
+    private static final class Postings {
+        private int[] ids = new int[INITIAL_POSTINGS];
+        private int size;
+
+        private void add(final int id) {
+            /**
+             * The ids grow with every added name, so a trigram that occurs
+             * twice in the same name is the last id of the list.
+             */
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exponentially decayed view counts of the titles: a view loses half of its
+ * weight every HALF_LIFE ticks of the clock (the ids of the actions), so the
+ * titles watched recently rank above the ones watched a lot a long time ago.
+ * <p>
+ * All the scores decay with the same factor, so instead of decaying every
+ * score at every tick, a view at time t adds exp(rate * t) to the score of
+ * its title, and the real score is the stored one times exp(-rate * now).
+ * These sums grow without bound, so their logarithms are stored instead:
+ * a view adds rate * t to the log-score (log(exp(a) + exp(b)) is computed
+ * without leaving the logarithms), which grows only linearly with the time.
+ * The order of the log-scores is the order of the real scores, even for
+ * titles not watched for a very long time, and a view updates a single
+ * log-score in O(1), without ever renormalizing the others.
+ */
+public final class TrendingScores {
+    /**
+     * Number of ticks after which a view counts half
+     */
+    public static final double HALF_LIFE = 100;
+
+    private static final double RATE = Math.log(2) / HALF_LIFE;
+
+    private final Map<String, Double> logScores;
+    private long clock;
+
+    /**
+     * @param views total number of views of every title; the time of these
+     *              views is unknown, so they are counted at time 0
+     */
+    public TrendingScores(final Map<String, Integer> views) {
+        logScores = new HashMap<>();
+        views.forEach((title, count) -> logScores.put(title, Math.log(count)));
+    }
+
+    /**
+     * Moves the clock forward (a time from the past leaves it unchanged).
+     * @param time the current time
+     */
+    public void advance(final long time) {
+        clock = Math.max(clock, time);
+    }
+
+    /**
+     * Adds a view at the current time.
+     * @param title viewed title
+     * @return the new log-score of the title
+     */
+    public double registerView(final String title) {
+        return logScores.merge(title, RATE * clock, TrendingScores::logSum);
+    }
+
+    /**
+     * @param title a title
+     * @return the log-score of the title (negative infinity, if the title
+     *         was never viewed), the key the titles are ranked by
+     */
+    public double getLogScore(final String title) {
+        return logScores.getOrDefault(title, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * @param title a title
+     * @return the decayed number of views of the title, at the current time
+     */
+    public double getScore(final String title) {
+        return Math.exp(getLogScore(title) - RATE * clock);
+    }
+
+    /**
+     * @return log(exp(a) + exp(b)), without overflowing
+     */
+    private static double logSum(final double a, final double b) {
+        double max = Math.max(a, b);
+        double min = Math.min(a, b);
+        if (min == Double.NEGATIVE_INFINITY) {
+            return max;
+        }
+        return max + Math.log1p(Math.exp(min - max));
+    }
+}
@@ -0,0 +1,61 @@
+package repository;
+
+import entertainment.Video;
+import user.User;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps, for every user, the position of the first video (in database order)
+ * that the user hasn't seen yet.
+ * <p>
+ * A cursor is computed the first time it is needed and then it only moves
+ * forward, when the user watches the video under it, so finding the first
+ * unseen video costs O(1) amortized.
+ */
+public final class UnseenCursors {
+    private final List<Video> videos;
+    private final Map<User, Integer> cursors;
+
+    /**
+     * @param videos all the videos, in database order
+     */
+    public UnseenCursors(final List<Video> videos) {
+        this.videos = videos;
+        this.cursors = new HashMap<>();
+    }
+
+    /**
+     * @param user a user from the database
+     * @return first video not found in the user's history;
+     *         null, if the user has seen every video
+     */
+    public Video firstUnseen(final User user) {
+        int cursor = cursors.computeIfAbsent(user, x -> skipSeen(x, 0));
+        return (cursor < videos.size()) ? videos.get(cursor) : null;
+    }
+
+    /**
+     * Must be called after a user watched a video.
+     * @param user user that watched the video
+     * @param title title of the video
+     */
+    public void registerView(final User user, final String title) {
+        Integer cursor = cursors.get(user);
+        if (cursor != null && cursor < videos.size()
+                && videos.get(cursor).getTitle().equals(title)) {
+            cursors.put(user, skipSeen(user, cursor));
+        }
+    }
+
+    private int skipSeen(final User user, final int from) {
+        int cursor = from;
+        while (cursor < videos.size()
+                && user.getHistory().containsKey(videos.get(cursor).getTitle())) {
+            cursor++;
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,106 @@
+package repository;
+
+import user.User;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps the number of ratings given by every user and an index of the
+ * active users (the ones that gave at least a rating), sorted by
+ * (number of ratings, username, position in the database); the position
+ * keeps apart the users that have the same username.
+ */
+public final class UserActivityIndex {
+    private final Map<User, Integer> counts;
+    private final Map<User, Integer> positions;
+    private final TreeSet<User> order;
+
+    /**
+     * @param users all the users from the database
+     */
+    public UserActivityIndex(final List<User> users) {
+        counts = new HashMap<>();
+        positions = new HashMap<>();
+        order = new TreeSet<>(Comparator.comparing((User x) -> counts.get(x))
+                .thenComparing(User::getUsername).thenComparing(positions::get));
+
+        for (User user : users) {
+            int count = user.getRated().values().stream().mapToInt(List::size).sum();
+            counts.put(user, count);
+            positions.put(user, positions.size());
+            if (count > 0) {
+                order.add(user);
+            }
+        }
+    }
+
+    /**
+     * Must be called after a user rated a video.
+     * @param user user that gave the rating
+     */
+    public void registerRating(final User user) {
+        order.remove(user);
+        counts.merge(user, 1, Integer::sum);
+        order.add(user);
+    }
+
+    /**
+     * @param user a user from the database
+     * @return number of ratings given by the user
+     */
+    public int getCount(final User user) {
+        return counts.getOrDefault(user, 0);
+    }
+
+    /**
+     * @param user a user from the database
+     * @return position of the user in the database
+     */
+    public int getPosition(final User user) {
+        return positions.get(user);
+    }
+
+    /**
+     * @return iterator over the active users, from the least active one
+     */
+    public Iterator<User> iterator() {
+        return order.iterator();
+    }
+
+    /**
+     * @return iterator over the active users, from the most active one
+     */
+    public Iterator<User> descendingIterator() {
+        return order.descendingIterator();
+    }
+
+    /**
+     * @param from an active user
+     * @return iterator over the active users that come after the given one,
+     *         from the least active one
+     */
+    public Iterator<User> iteratorAfter(final User from) {
+        return order.tailSet(from, false).iterator();
+    }
+
+    /**
+     * @param from an active user
+     * @return iterator over the active users that come before the given one,
+     *         from the most active one
+     */
+    public Iterator<User> descendingIteratorAfter(final User from) {
+        return order.headSet(from, false).descendingIterator();
+    }
+
+    /**
+     * @return number of users that gave at least a rating
+     */
+    public int size() {
+        return order.size();
+    }
+}
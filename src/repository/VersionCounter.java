@@ -0,0 +1,25 @@
+package repository;
+
+/**
+ * Counters kept by the Repository for the parts of the database that
+ * can change; every change of a part increments its counter, so a result
+ * computed from that part is still valid as long as the counter is the same.
+ */
+public enum VersionCounter {
+    /**
+     * Incremented when a new database is loaded
+     */
+    CATALOG,
+    /**
+     * Incremented by every successful view command
+     */
+    VIEWS,
+    /**
+     * Incremented by every video added to a favorites list
+     */
+    FAVORITES,
+    /**
+     * Incremented by every successful rating command
+     */
+    RATINGS
+}
@@ -0,0 +1,120 @@
+package repository;
+
+import entertainment.Video;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Ordered index over a list of videos: the videos are kept sorted by a numeric
+ * key (e.g. the average rating), the ties being broken by a second comparator.
+ * <p>
+ * The key of a video is stored in the index, so it must be updated
+ * through update() every time the value it was computed from changes.
+ */
+public final class VideoIndex {
+    private final Map<Video, Double> keys;
+    private final Comparator<Video> comparator;
+    private final TreeSet<Video> order;
+
+    /**
+     * Builds the index.
+     * @param videos indexed videos
+     * @param key computes the initial key of a video
+     * @param descending true if the videos with bigger keys come first
+     * @param tieBreak order of the videos with the same key
+     */
+    public VideoIndex(final List<? extends Video> videos, final ToDoubleFunction<Video> key,
+                      final boolean descending, final Comparator<Video> tieBreak) {
+        this.keys = new HashMap<>();
+        for (Video video : videos) {
+            keys.put(video, key.applyAsDouble(video));
+        }
+
+        Comparator<Video> byKey = (o1, o2) -> Double.compare(keys.get(o1), keys.get(o2));
+        this.comparator = (descending ? byKey.reversed() : byKey).thenComparing(tieBreak);
+        this.order = new TreeSet<>(comparator);
+        this.order.addAll(videos);
+    }
+
+    /**
+     * Moves a video to the position given by its new key.
+     * @param video indexed video
+     * @param key new value of the key
+     */
+    public void update(final Video video, final double key) {
+        if (keys.containsKey(video) && Double.compare(keys.get(video), key) != 0) {
+            /**
+             * The video must be removed while the set can still find it by its old key.
+             */
+            order.remove(video);
+            keys.put(video, key);
+            order.add(video);
+        }
+    }
+
+    /**
+     * @param video indexed video
+     * @return the key the video is sorted by
+     */
+    public double getKey(final Video video) {
+        return keys.get(video);
+    }
+
+    /**
+     * @return iterator over the videos, in index order
+     */
+    public Iterator<Video> iterator() {
+        return order.iterator();
+    }
+
+    /**
+     * @return iterator over the videos, in reverse index order
+     */
+    public Iterator<Video> descendingIterator() {
+        return order.descendingIterator();
+    }
+
+    /**
+     * @param from an indexed video
+     * @return iterator over the videos that come after the given one,
+     *         in index order
+     */
+    public Iterator<Video> iteratorAfter(final Video from) {
+        return order.tailSet(from, false).iterator();
+    }
+
+    /**
+     * @param from an indexed video
+     * @return iterator over the videos that come before the given one,
+     *         in reverse index order
+     */
+    public Iterator<Video> descendingIteratorAfter(final Video from) {
+        return order.headSet(from, false).descendingIterator();
+    }
+
+    /**
+     * @param video a video
+     * @return true if the video is indexed
+     */
+    public boolean contains(final Video video) {
+        return keys.containsKey(video);
+    }
+
+    /**
+     * @return the order of the index (ascending), to sort subsets of the
+     *         indexed videos exactly as the index does
+     */
+    public Comparator<Video> comparator() {
+        return comparator;
+    }
+
+    public int size() {
+        return order.size();
+    }
+}
@@ -0,0 +1,156 @@
+package repository;
+
+import user.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Approximate view statistics with a fixed memory footprint: a Count-Min
+ * sketch of the number of views of every title, with the titles that have
+ * the biggest estimates kept in a bounded set (the heavy hitters), and a
+ * HyperLogLog counter of the distinct viewers of every title.
+ * <p>
+ * The memory depends only on the error bounds, on the number of heavy
+ * hitters and on the size of the catalog, not on the number of views or of
+ * users. The sketches are fed with the histories when they are built and
+ * then with every view.
+ */
+public final class ViewSketches {
+    /**
+     * Default maximum overestimate of a view count, as a fraction of all the views
+     */
+    public static final double DEFAULT_EPSILON = 0.001;
+    /**
+     * Default probability of exceeding the maximum overestimate
+     */
+    public static final double DEFAULT_DELTA = 0.01;
+    /**
+     * Default log2 of the number of registers of a HyperLogLog counter
+     */
+    public static final int DEFAULT_PRECISION = 10;
+    /**
+     * Default number of heavy hitters kept
+     */
+    public static final int DEFAULT_HEAVY_HITTERS = 100;
+
+    private final double epsilon;
+    private final int precision;
+    private final int capacity;
+    private final CountMinSketch views;
+    private final Map<String, HyperLogLog> viewers;
+    private final Map<String, Long> hitterCounts;
+    private final TreeSet<String> hitters;
+
+    /**
+     * @param users all the users, with their histories
+     * @param titles all the titles from the catalog
+     * @param epsilon maximum overestimate of a view count, as a fraction of all the views
+     * @param delta probability of exceeding the maximum overestimate
+     * @param precision log2 of the number of registers of a HyperLogLog counter
+     * @param heavyHitters number of heavy hitters kept
+     */
+    public ViewSketches(final List<User> users, final Collection<String> titles,
+                        final double epsilon, final double delta, final int precision,
+                        final int heavyHitters) {
+        if (heavyHitters < 1) {
+            throw new IllegalArgumentException("at least one heavy hitter must be kept");
+        }
+        this.epsilon = epsilon;
+        this.precision = precision;
+        this.capacity = heavyHitters;
+        this.views = new CountMinSketch(epsilon, delta);
+        this.viewers = new HashMap<>();
+        for (String title : titles) {
+            viewers.put(title, new HyperLogLog(precision));
+        }
+        this.hitterCounts = new HashMap<>();
+        this.hitters = new TreeSet<>(Comparator.comparing((String x) -> -hitterCounts.get(x))
+                .thenComparing(Comparator.naturalOrder()));
+
+        for (User user : users) {
+            user.getHistory().forEach((title, count) -> add(user, title, count));
+        }
+    }
+
+    /**
+     * Must be called after a user watched a video.
+     * @param user user that watched the video
+     * @param title title of the video
+     */
+    public void registerView(final User user, final String title) {
+        add(user, title, 1);
+    }
+
+    private void add(final User user, final String title, final int count) {
+        HyperLogLog counter = viewers.get(title);
+        if (counter != null) {
+            counter.add(user.getUsername());
+        }
+
+        long estimate = views.add(title, count);
+        if (hitterCounts.containsKey(title)) {
+            hitters.remove(title);
+            hitterCounts.put(title, estimate);
+            hitters.add(title);
+        } else if (hitters.size() < capacity || estimate > hitterCounts.get(hitters.last())) {
+            hitterCounts.put(title, estimate);
+            hitters.add(title);
+            if (hitters.size() > capacity) {
+                hitterCounts.remove(hitters.pollLast());
+            }
+        }
+    }
+
+    /**
+     * @return the titles with the biggest estimated number of views, from
+     *         the most viewed one (the ties are sorted by title)
+     */
+    public List<String> getHeavyHitters() {
+        return new ArrayList<>(hitters);
+    }
+
+    /**
+     * @param title a title
+     * @return estimated number of views of the title
+     */
+    public long estimateViews(final String title) {
+        return views.estimate(title);
+    }
+
+    /**
+     * @param title a title from the catalog
+     * @return estimated number of distinct users that watched the title
+     */
+    public long estimateViewers(final String title) {
+        HyperLogLog counter = viewers.get(title);
+        return (counter != null) ? counter.estimate() : 0;
+    }
+
+    /**
+     * @return the maximum overestimate of a view count (with probability
+     *         1 - delta), for the views counted so far
+     */
+    public double getViewsError() {
+        return epsilon * views.getTotal();
+    }
+
+    /**
+     * @return relative standard error of the distinct viewer counts
+     */
+    public double getViewersError() {
+        return HyperLogLog.standardError(precision);
+    }
+
+    /**
+     * @return bytes used by the counters of the sketches
+     */
+    public long memoryBytes() {
+        return views.memoryBytes() + (long) viewers.size() * (1 << precision);
+    }
+}
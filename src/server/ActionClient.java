@@ -0,0 +1,89 @@
+package server;
+
+import fileio.ActionInputData;
+import org.json.simple.JSONArray;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+/**
+ * Blocking client for the binary action protocol.
+ * <p>
+ * send() and receive() are independent, so a caller can pipeline
+ * several request frames before reading the first response; the responses
+ * are received in the same order as the requests were sent.
+ */
+public final class ActionClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_SIZE);
+
+    /**
+     * Connects to a running ActionServer.
+     * @param host server address
+     * @param port server port
+     * @throws IOException if the connection fails
+     */
+    public ActionClient(final String host, final int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Sends a batch of actions as a single request frame.
+     * @param actions actions in raw format
+     * @throws IOException if the frame cannot be written
+     */
+    public void send(final List<ActionInputData> actions) throws IOException {
+        ByteBuffer frame = FrameCodec.encodeRequest(actions);
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    /**
+     * Waits for the response of the oldest request without an answer.
+     * @return array of {id, message} objects, one for every action of the request
+     * @throws IOException if the connection is closed or the frame is corrupted
+     */
+    public JSONArray receive() throws IOException {
+        header.clear();
+        readFully(header);
+        int length = header.getInt(0);
+        if (length < 0 || length > FrameCodec.MAX_FRAME_SIZE) {
+            throw new IOException("invalid frame length " + length);
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload);
+        return FrameCodec.decodeResponse(payload.flip());
+    }
+
+    /**
+     * Sends a batch and waits for its response.
+     * @param actions actions in raw format
+     * @return array of {id, message} objects
+     * @throws IOException in case of connection errors
+     */
+    public JSONArray apply(final List<ActionInputData> actions) throws IOException {
+        send(actions);
+        return receive();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("connection closed by the server");
+            }
+        }
+    }
+}
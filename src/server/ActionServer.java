@@ -0,0 +1,247 @@
+package server;
+
+import action.Action;
+import action.ActionCenter;
+import action.ScoreVectors;
+import fileio.Input;
+import fileio.InputLoader;
+import repository.Repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Non-blocking TCP front-end for the action engine.
+ * <p>
+ * Clients send length-prefixed request frames (see FrameCodec), each one
+ * carrying a batch of actions, and may pipeline any number of frames without
+ * waiting for the answers. All the actions are applied on a single thread,
+ * in the order they were received, so the repository sees exactly the same
+ * sequence of operations as when the actions are read from a file; the
+ * responses of a connection are sent back in request order.
+ */
+public final class ActionServer implements Runnable, Closeable {
+    /**
+     * Port used when none is given in the command line
+     */
+    public static final int DEFAULT_PORT = 7070;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+
+    /**
+     * Opens the listening socket.
+     * @param port port to listen on (0 lets the system choose one)
+     * @throws IOException if the socket cannot be bound
+     */
+    public ActionServer(final int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return the port the server is listening on
+     * @throws IOException if the socket is closed
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Event loop: accepts connections, decodes the complete frames and
+     * writes the responses, until the server is closed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(key);
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        /**
+                         * A broken connection or a corrupted frame
+                         * only closes the connection that caused it.
+                         */
+                        key.cancel();
+                        key.channel().close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Stops the event loop; the sockets are released
+     * by the loop itself, before run() returns.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void release() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection());
+        }
+    }
+
+    private void read(final SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        int bytes = channel.read(connection.input);
+        if (bytes < 0) {
+            key.cancel();
+            channel.close();
+            return;
+        }
+
+        /**
+         * Apply every complete frame; a partial frame stays in the buffer
+         * until the rest of it arrives.
+         */
+        ByteBuffer input = connection.input.flip();
+        while (input.remaining() >= FrameCodec.HEADER_SIZE) {
+            int length = input.getInt(input.position());
+            if (length < 0 || length > FrameCodec.MAX_FRAME_SIZE) {
+                throw new IOException("invalid frame length " + length);
+            }
+            if (input.remaining() < FrameCodec.HEADER_SIZE + length) {
+                break;
+            }
+
+            ByteBuffer payload = input.slice(input.position() + FrameCodec.HEADER_SIZE, length);
+            input.position(input.position() + FrameCodec.HEADER_SIZE + length);
+            connection.output.add(handle(payload));
+        }
+        input.compact();
+        connection.reserve();
+
+        write(key);
+    }
+
+    private void write(final SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Deque<ByteBuffer> output = ((Connection) key.attachment()).output;
+
+        while (!output.isEmpty()) {
+            channel.write(output.peek());
+            if (output.peek().hasRemaining()) {
+                break;
+            }
+            output.poll();
+        }
+
+        key.interestOps(output.isEmpty() ? SelectionKey.OP_READ
+                : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Applies the actions from a request frame on the repository.
+     * @param payload request frame content
+     * @return response frame
+     */
+    private static ByteBuffer handle(final ByteBuffer payload) {
+        List<Action> actions = FrameCodec.decodeRequest(payload);
+        List<String> messages = new ArrayList<>(actions.size());
+
+        for (Action action : actions) {
+            messages.add(ActionCenter.apply(action));
+        }
+        ScoreVectors.getInstance().endRun();
+
+        return FrameCodec.encodeResponse(actions, messages);
+    }
+
+    /**
+     * Per-connection buffers.
+     */
+    private static final class Connection {
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final Deque<ByteBuffer> output = new ArrayDeque<>();
+
+        /**
+         * Grows the input buffer when a frame bigger than
+         * the free space is waiting to be read.
+         */
+        private void reserve() {
+            if (input.position() >= FrameCodec.HEADER_SIZE) {
+                int needed = FrameCodec.HEADER_SIZE + input.getInt(0);
+                if (needed > input.capacity()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(needed);
+                    input.flip();
+                    bigger.put(input);
+                    input = bigger;
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a database and serves it until the process is stopped.
+     * @param args path to the input file and, optionally, the port
+     * @throws IOException if the server cannot be started
+     */
+    public static void main(final String[] args) throws IOException {
+        InputLoader inputLoader = new InputLoader(args[0]);
+        Input input = inputLoader.readData();
+        Repository.getInstance(input);
+
+        int port = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        ActionServer server = new ActionServer(port);
+        System.out.println("Listening on port " + server.getPort());
+        server.run();
+    }
+}
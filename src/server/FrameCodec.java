@@ -0,0 +1,302 @@
+package server;
+
+import action.Action;
+import action.Command;
+import action.Query;
+import action.Recommendation;
+import common.Constants;
+import fileio.ActionInputData;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes and decodes the frames of the binary action protocol.
+ * <p>
+ * Every frame is an int length followed by a payload of that many bytes.
+ * A request payload holds an int record count and the records, each record
+ * starting with a kind byte and the action id, followed by the fields used by
+ * that kind of action. A response payload holds an int record count and, for
+ * every record, the action id and the output message. Strings are written as
+ * an int byte length (-1 for null) and their UTF-8 bytes.
+ */
+public final class FrameCodec {
+    /**
+     * Size in bytes of the length prefix (and of every int field)
+     */
+    public static final int HEADER_SIZE = Integer.BYTES;
+    /**
+     * Frames announcing a bigger payload are considered corrupted
+     */
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private static final byte KIND_COMMAND = 0;
+    private static final byte KIND_QUERY = 1;
+    private static final byte KIND_RECOMMENDATION = 2;
+    private static final int NULL_LENGTH = -1;
+    /**
+     * Number of strings in a recommendation record
+     */
+    private static final int RECOMMENDATION_STRINGS = 4;
+    /**
+     * Smallest request record: a recommendation (kind, id and its strings)
+     */
+    private static final int MIN_ACTION_SIZE = Byte.BYTES + Integer.BYTES
+            + RECOMMENDATION_STRINGS * Integer.BYTES;
+    /**
+     * Smallest response record: the id and the length of the message
+     */
+    private static final int MIN_OUTPUT_SIZE = 2 * Integer.BYTES;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Builds a request frame that carries a batch of actions.
+     * @param actions actions in raw format
+     * @return frame ready to be written on a channel
+     */
+    public static ByteBuffer encodeRequest(final List<ActionInputData> actions) {
+        FrameBuilder builder = new FrameBuilder();
+        builder.putInt(actions.size());
+
+        for (ActionInputData action : actions) {
+            switch (action.getActionType()) {
+                case Constants.COMMAND -> {
+                    builder.putByte(KIND_COMMAND);
+                    builder.putInt(action.getActionId());
+                    builder.putString(action.getUsername());
+                    builder.putString(action.getTitle());
+                    builder.putInt(action.getSeasonNumber());
+                    builder.putString(action.getType());
+                    builder.putDouble(action.getGrade());
+                }
+                case Constants.QUERY -> {
+                    builder.putByte(KIND_QUERY);
+                    builder.putInt(action.getActionId());
+                    builder.putString(action.getObjectType());
+                    builder.putInt(action.getNumber());
+                    builder.putFilters(action.getFilters());
+                    builder.putString(action.getSortType());
+                    builder.putString(action.getCriteria());
+                }
+                case Constants.RECOMMENDATION -> {
+                    builder.putByte(KIND_RECOMMENDATION);
+                    builder.putInt(action.getActionId());
+                    builder.putString(action.getUsername());
+                    builder.putString(action.getType());
+                    builder.putString(action.getGenre());
+                    builder.putString(action.getTitle());
+                }
+                default -> throw new IllegalArgumentException("unknown action type "
+                        + action.getActionType());
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Rebuilds the actions carried by a request payload.
+     * @param payload frame content, without the length prefix
+     * @return list of actions, in the order they were sent
+     */
+    public static List<Action> decodeRequest(final ByteBuffer payload) {
+        int count = getCount(payload, MIN_ACTION_SIZE);
+        List<Action> actions = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            byte kind = payload.get();
+            int actionId = payload.getInt();
+
+            actions.add(switch (kind) {
+                case KIND_COMMAND -> new Command(actionId, getString(payload),
+                        getString(payload), payload.getInt(), getString(payload),
+                        payload.getDouble());
+                case KIND_QUERY -> new Query(actionId, getString(payload), payload.getInt(),
+                        getFilters(payload), getString(payload), getString(payload));
+                case KIND_RECOMMENDATION -> new Recommendation(actionId, getString(payload),
+                        getString(payload), getString(payload), getString(payload));
+                default -> throw new IllegalArgumentException("unknown record kind " + kind);
+            });
+        }
+
+        return actions;
+    }
+
+    /**
+     * Builds a response frame for a batch of applied actions.
+     * @param actions actions from the request, in order
+     * @param messages output message of every action
+     * @return frame ready to be written on a channel
+     */
+    public static ByteBuffer encodeResponse(final List<Action> actions,
+                                            final List<String> messages) {
+        FrameBuilder builder = new FrameBuilder();
+        builder.putInt(actions.size());
+
+        for (int i = 0; i < actions.size(); i++) {
+            builder.putInt(actions.get(i).getActionId());
+            builder.putString(messages.get(i));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Converts a response payload into the same JSON representation
+     * that is used for the output files.
+     * @param payload frame content, without the length prefix
+     * @return array of {id, message} objects
+     */
+    @SuppressWarnings("unchecked")
+    public static JSONArray decodeResponse(final ByteBuffer payload) {
+        int count = getCount(payload, MIN_OUTPUT_SIZE);
+        JSONArray result = new JSONArray();
+
+        for (int i = 0; i < count; i++) {
+            JSONObject output = new JSONObject();
+            output.put(Constants.ID_STRING, payload.getInt());
+            output.put(Constants.MESSAGE, getString(payload));
+            result.add(output);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads a count (or a length) sent by the other side and checks it
+     * before anything is allocated for it: the frame must still hold that
+     * many records of at least the given size.
+     * @throws IllegalArgumentException if the count is negative or too big
+     */
+    private static int getCount(final ByteBuffer buffer, final int minRecordSize) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / minRecordSize) {
+            throw new IllegalArgumentException("corrupted frame: " + count + " records of "
+                    + minRecordSize + " bytes in " + buffer.remaining() + " bytes");
+        }
+        return count;
+    }
+
+    /**
+     * Consumes the length of a null string or list, if the next int is one.
+     * @return true if the next value is null
+     */
+    private static boolean isNull(final ByteBuffer buffer) {
+        if (buffer.getInt(buffer.position()) != NULL_LENGTH) {
+            return false;
+        }
+        buffer.getInt();
+        return true;
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        if (isNull(buffer)) {
+            return null;
+        }
+
+        byte[] bytes = new byte[getCount(buffer, Byte.BYTES)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<List<String>> getFilters(final ByteBuffer buffer) {
+        if (isNull(buffer)) {
+            return null;
+        }
+
+        int count = getCount(buffer, Integer.BYTES);
+        List<List<String>> filters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (isNull(buffer)) {
+                filters.add(null);
+                continue;
+            }
+
+            int size = getCount(buffer, Integer.BYTES);
+            List<String> filter = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                filter.add(getString(buffer));
+            }
+            filters.add(filter);
+        }
+
+        return filters;
+    }
+
+    /**
+     * Growable buffer that reserves the room for the length prefix
+     * and fills it in when the frame is complete.
+     */
+    private static final class FrameBuilder {
+        private static final int INITIAL_CAPACITY = 256;
+
+        private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY)
+                .position(HEADER_SIZE);
+
+        private void ensure(final int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2,
+                        buffer.position() + bytes));
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+        }
+
+        private void putByte(final byte value) {
+            ensure(Byte.BYTES);
+            buffer.put(value);
+        }
+
+        private void putInt(final int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putDouble(final double value) {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void putString(final String value) {
+            if (value == null) {
+                putInt(NULL_LENGTH);
+                return;
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void putFilters(final List<List<String>> filters) {
+            if (filters == null) {
+                putInt(NULL_LENGTH);
+                return;
+            }
+
+            putInt(filters.size());
+            for (List<String> filter : filters) {
+                if (filter == null) {
+                    putInt(NULL_LENGTH);
+                    continue;
+                }
+
+                putInt(filter.size());
+                filter.forEach(this::putString);
+            }
+        }
+
+        private ByteBuffer build() {
+            buffer.putInt(0, buffer.position() - HEADER_SIZE);
+            return buffer.flip();
+        }
+    }
+}
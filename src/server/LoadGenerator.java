@@ -0,0 +1,122 @@
+package server;
+
+import action.Action;
+import action.ActionCenter;
+import common.Constants;
+import fileio.ActionInputData;
+import fileio.InputLoader;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import repository.Repository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loopback load generator for the binary protocol.
+ * <p>
+ * Replays the actions of a test file a number of times, first by calling
+ * apply() directly (the cost of the engine alone, which is the lower bound
+ * for any transport) and then through an ActionServer on localhost, with the
+ * actions grouped in batches and several frames kept in flight. The first
+ * pass of the TCP run is compared with the direct run to make sure the
+ * transport does not change any message.
+ */
+public final class LoadGenerator {
+    private static final String DEFAULT_TEST = Constants.TESTS_PATH + "large_test_no_1.json";
+    private static final int DEFAULT_ITERATIONS = 200;
+    private static final int DEFAULT_BATCH = 16;
+    private static final int DEFAULT_DEPTH = 8;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * for coding style
+     */
+    private LoadGenerator() {
+    }
+
+    /**
+     * @param args [test file] [iterations] [batch size] [pipeline depth]
+     * @throws IOException in case of connection errors
+     * @throws InterruptedException if interrupted while stopping the server
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        String path = (args.length > 0) ? args[0] : DEFAULT_TEST;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        int batchSize = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_BATCH;
+        int depth = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_DEPTH;
+
+        List<ActionInputData> commands = new InputLoader(path).readData().getCommands();
+        int total = commands.size() * iterations;
+
+        /**
+         * The input objects are shared with the repository (and modified by
+         * the commands), so every run starts from a freshly parsed file.
+         */
+        Repository.getInstance(new InputLoader(path).readData());
+        List<String> expected = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (ActionInputData command : commands) {
+                Action action = ActionCenter.createAction(command);
+                String message = action.apply();
+                if (i == 0) {
+                    expected.add(message);
+                }
+            }
+        }
+        report("direct", total, System.nanoTime() - start);
+
+        List<List<ActionInputData>> batches = new ArrayList<>();
+        for (int i = 0; i < commands.size(); i += batchSize) {
+            batches.add(commands.subList(i, Math.min(commands.size(), i + batchSize)));
+        }
+
+        Repository.getInstance(new InputLoader(path).readData());
+        ActionServer server = new ActionServer(0);
+        Thread serverThread = new Thread(server);
+        serverThread.start();
+
+        List<String> received = new ArrayList<>();
+        try (ActionClient client = new ActionClient("localhost", server.getPort())) {
+            start = System.nanoTime();
+            int sent = 0;
+            int answered = 0;
+            int frames = batches.size() * iterations;
+
+            while (answered < frames) {
+                /**
+                 * Keep up to depth frames in flight before waiting for an answer.
+                 */
+                while (sent < frames && sent - answered < depth) {
+                    client.send(batches.get(sent % batches.size()));
+                    sent++;
+                }
+
+                JSONArray response = client.receive();
+                if (answered < batches.size()) {
+                    for (Object output : response) {
+                        received.add((String) ((JSONObject) output).get(Constants.MESSAGE));
+                    }
+                }
+                answered++;
+            }
+            report("tcp (batch " + batchSize + ", depth " + depth + ")", total,
+                    System.nanoTime() - start);
+        } finally {
+            server.close();
+            serverThread.join();
+        }
+
+        System.out.println("messages identical to the direct run: "
+                + expected.equals(received));
+    }
+
+    private static void report(final String mode, final int actions, final long nanos) {
+        System.out.printf("%-28s %8d actions in %8.1f ms -> %10.0f actions/s%n", mode, actions,
+                nanos / NANOS_PER_MILLI,
+                actions / (nanos / NANOS_PER_SECOND));
+    }
+}
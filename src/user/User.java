@@ -16,6 +16,10 @@ public final class User {
      * an element, whose value is 0).
      */
     private final HashMap<String, ArrayList<Integer>> rated;
+    /**
+     * Incremented every time the user watches a video.
+     */
+    private long version;
 
     public User(final String username, final String subscriptionType,
                 final Map<String, Integer> history,
@@ -46,4 +50,15 @@ public final class User {
     public HashMap<String, ArrayList<Integer>> getRated() {
         return rated;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Marks the history of the user as modified.
+     */
+    public void incrementVersion() {
+        version++;
+    }
 }
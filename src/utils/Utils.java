@@ -9,6 +9,7 @@ import repository.Repository;
 import user.User;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.LinkedHashMap;
 
@@ -55,6 +56,25 @@ public final class Utils {
         };
     }
 
+    /**
+     * Transforms a list of genres into a bitmask
+     * @param genres names of the genres
+     * @return mask where bit i is set for the Genre with ordinal i
+     *         (the unknown genres are ignored)
+     */
+    public static int genresToMask(final List<String> genres) {
+        int mask = 0;
+        if (genres != null) {
+            for (String name : genres) {
+                Genre genre = stringToGenre(name);
+                if (genre != null) {
+                    mask |= 1 << genre.ordinal();
+                }
+            }
+        }
+        return mask;
+    }
+
     /**
      * Transforms a string into an enum
      * @param award for actors
@@ -143,9 +163,7 @@ public final class Utils {
      * @return (int) number of views as int
      */
     public static int viewsOfAVideo(final String videoTitle) {
-        Repository repo = Repository.getInstance();
-        return repo.getUsers().stream().map(x -> x.getHistory()
-                .getOrDefault(videoTitle, 0)).reduce(0, Integer::sum);
+        return Repository.getInstance().getViews(videoTitle);
     }
 
     /**